@@ -1,7 +1,7 @@
 package tilings;
 
-import com.jsevy.jdxf.DXFDocument;
-import com.jsevy.jdxf.DXFGraphics;
+import tilings.export.DxfExporter;
+import tilings.export.SvgExporter;
 import tilings.multigrid.*;
 import tilings.painters.*;
 
@@ -13,9 +13,9 @@ import java.awt.event.MouseEvent;
 import java.awt.event.MouseWheelEvent;
 import java.awt.geom.*;
 import java.io.File;
-import java.io.FileWriter;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
 
 import static java.awt.event.InputEvent.CTRL_DOWN_MASK;
 
@@ -31,9 +31,21 @@ public class MultigridFrame extends JFrame {
 
     private final JTabbedPane tabbedPane = new JTabbedPane(JTabbedPane.TOP);
     private final JToolBar mainToolBar = new JToolBar();
-    private Multigrid multigrid = new Multigrid(5, 3, new ArrayList<>(Collections.nCopies(5, .2)), 0);
+    private Multigrid multigrid = new Multigrid(5, 3, new ArrayList<>(Collections.nCopies(5, .2)), 0,
+            Runtime.getRuntime().availableProcessors());
+    // the shown tiling, the last built multigrid or an opened tiling file
+    private transient Tiling tiling = multigrid;
+    // the recently built multigrids, stepping a spinner back and forth takes them instead of building again
+    private final transient MultigridCache multigridCache = new MultigridCache(32, 4_000_000);
+    // the build of the newest parameters, the previous tiling stays on the screen until it is done
+    private transient MultigridWorker multigridWorker;
+    // the painted raster tiles of the panels, panning draws them instead of painting the tiles again
+    private final transient RasterCache rasterCache = new RasterCache(256, 128L << 20);
 
     private final JButton dxfButton = new JButton("DXF");
+    private final JButton svgButton = new JButton("SVG");
+    private final JButton openButton = new JButton("Open");
+    private final JButton saveButton = new JButton("Save");
     private final JButton zoomButton = new JButton("100%");
     private final JLabel statusBar = new JLabel();
     private JToolBar verticalToolBar = new JToolBar(JToolBar.VERTICAL);
@@ -112,19 +124,9 @@ public class MultigridFrame extends JFrame {
         mainToolBar.add(reverseCheckbox);
         mainToolBar.addSeparator();
 
-        symmetrySpinner.addChangeListener(e -> {
-            updateMultigrid();
-            updateStatusBar();
-            updateSettings();
-            revalidateTabbedPane();
-        });
-
-        ChangeListener changeListener = e -> {
-            updateMultigrid();
-            updateStatusBar();
-            revalidateTabbedPane();
-        };
+        ChangeListener changeListener = e -> updateMultigrid();
 
+        symmetrySpinner.addChangeListener(changeListener);
         radiusSpinner.addChangeListener(changeListener);
         offsetSpinner.addChangeListener(changeListener);
         insetSpinner.addChangeListener(changeListener);
@@ -132,6 +134,12 @@ public class MultigridFrame extends JFrame {
         mainToolBar.add(Box.createHorizontalGlue());
         mainToolBar.add(dxfButton);
         dxfButton.addActionListener(e -> writeDxf());
+        mainToolBar.add(svgButton);
+        svgButton.addActionListener(e -> writeSvg());
+        mainToolBar.add(openButton);
+        openButton.addActionListener(e -> openTiling());
+        mainToolBar.add(saveButton);
+        saveButton.addActionListener(e -> writeTiling());
 
         mainToolBar.addSeparator();
 
@@ -157,6 +165,7 @@ public class MultigridFrame extends JFrame {
         verticalToolBar.addSeparator();
         add(verticalToolBar, BorderLayout.WEST);
 
+        multigridCache.put(getParameters(multigrid), multigrid);
         updateStatusBar();
         updateSettings();
 
@@ -170,12 +179,60 @@ public class MultigridFrame extends JFrame {
     private void updateMultigrid() {
         int symmetry = (int) symmetrySpinner.getValue();
         int radius = (int) radiusSpinner.getValue();
-        double offset = (double) offsetSpinner.getValue();
-        double gridInset = (double) insetSpinner.getValue();
-        multigrid = new Multigrid(symmetry, radius, Collections.nCopies(symmetry, offset), gridInset);
-        colorByAreaPainter.setTileAreaList(multigrid.getTileAreaList());
-        colorByIndicesPainter.setVertexIndexSet(multigrid.getVertexIndexSet());
-//        System.out.println("multigrid.getVertexIndexSet() = " + multigrid.getVertexIndexSet());
+        // the spinners add their steps to the doubles, the rounding gives the same key when a value is revisited
+        double offset = roundToStep((double) offsetSpinner.getValue());
+        double gridInset = roundToStep((double) insetSpinner.getValue());
+        List<Double> offsetList = Collections.nCopies(symmetry, offset);
+        MultigridParameters parameters = new MultigridParameters(symmetry, radius, offsetList, gridInset);
+        if (multigridWorker != null) {
+            // only the newest parameters are built
+            multigridWorker.cancel(false);
+            multigridWorker = null;
+        }
+        Multigrid cached = multigridCache.get(parameters);
+        if (cached != null) {
+            setMultigrid(cached);
+            return;
+        }
+        Multigrid sameLines = parameters.hasSameLines(getParameters(multigrid))
+                ? multigrid : multigridCache.findSameLines(parameters);
+        multigridWorker = new MultigridWorker(parameters, sameLines);
+        multigridWorker.addPropertyChangeListener(e -> {
+            if ("progress".equals(e.getPropertyName())) {
+                updateStatusBar();
+            }
+        });
+        multigridWorker.execute();
+        updateStatusBar();
+    }
+
+    private void setMultigrid(Multigrid newMultigrid) {
+        multigrid = newMultigrid;
+        setTiling(newMultigrid);
+    }
+
+    private void setTiling(Tiling newTiling) {
+        boolean isSymmetryChanged = newTiling.getSymmetry() != tiling.getSymmetry();
+        tiling = newTiling;
+        // the tiles of the old tiling are not shown again and the painters are changed below
+        rasterCache.clear();
+        colorByAreaPainter.setTileAreaList(tiling.getTileAreaList());
+        colorByIndicesPainter.setVertexIndexSet(tiling.getVertexIndexSet());
+//        System.out.println("tiling.getVertexIndexSet() = " + tiling.getVertexIndexSet());
+        updateStatusBar();
+        if (isSymmetryChanged) {
+            updateSettings();
+        }
+        revalidateTabbedPane();
+    }
+
+    private static double roundToStep(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+
+    private static MultigridParameters getParameters(Multigrid multigrid) {
+        return new MultigridParameters(multigrid.getSymmetry(), multigrid.getGridRadius(),
+                multigrid.getOffsetList(), multigrid.getGridInset(), multigrid.isExact());
     }
 
     private void createPainterLists() {
@@ -194,20 +251,20 @@ public class MultigridFrame extends JFrame {
 
     private void updateSettings() {
         for (RhombusPainter beforePainter : beforePainterList) {
-            boolean supported = beforePainter.isSymmetrySupported(multigrid.getSymmetry());
+            boolean supported = beforePainter.isSymmetrySupported(tiling.getSymmetry());
             AbstractButton button = verticalToolBarComponents.get(beforePainter);
             beforePainter.setEnabled(supported && button.isSelected());
             button.setVisible(supported);
         }
         for (RhombusPainter afterPainter : afterPainterList) {
-            boolean supported = afterPainter.isSymmetrySupported(multigrid.getSymmetry());
+            boolean supported = afterPainter.isSymmetrySupported(tiling.getSymmetry());
             AbstractButton button = verticalToolBarComponents.get(afterPainter);
             afterPainter.setEnabled(supported && button.isSelected());
             button.setVisible(supported);
         }
         tabbedPane.removeAll();
         for (RhombusPainter painter : mainPainterList) {
-            if (painter.isSymmetrySupported(multigrid.getSymmetry())) {
+            if (painter.isSymmetrySupported(tiling.getSymmetry())) {
                 tabbedPane.add(painter.getName(), new PainterScrollPane(new TilingPanel(painter)));
             }
         }
@@ -232,7 +289,55 @@ public class MultigridFrame extends JFrame {
     }
 
     private void updateStatusBar() {
-        statusBar.setText("Number of tiles - " + multigrid.getTileList().size());
+        String text = "Number of tiles - " + tiling.getTileList().size();
+        if (multigridWorker != null) {
+            text += ", building the next tiling - " + multigridWorker.getProgress() + "%";
+        }
+        statusBar.setText(text);
+    }
+
+    /**
+     * Builds the multigrid off the Event Dispatch Thread, the worker is the monitor of the build,
+     * so cancelling the worker stops the build at the next chunk.
+     */
+    private class MultigridWorker extends SwingWorker<Multigrid, Void> implements BuildMonitor {
+        private final MultigridParameters parameters;
+        // the cached multigrid to derive the new one from or null
+        private final Multigrid sameLines;
+
+        MultigridWorker(MultigridParameters parameters, Multigrid sameLines) {
+            this.parameters = parameters;
+            this.sameLines = sameLines;
+        }
+
+        @Override
+        protected Multigrid doInBackground() {
+            Multigrid built = sameLines != null
+                    ? sameLines.derive(parameters.gridRadius(), parameters.gridInset(), this)
+                    : parameters.build(Runtime.getRuntime().availableProcessors(), this);
+            multigridCache.put(parameters, built);
+            return built;
+        }
+
+        @Override
+        public void setProgress(double progress) {
+            setProgress((int) Math.max(0, Math.min(100, progress * 100)));
+        }
+
+        @Override
+        protected void done() {
+            if (multigridWorker != this) {
+                // cancelled, a newer build is running
+                return;
+            }
+            multigridWorker = null;
+            try {
+                setMultigrid(get());
+            } catch (InterruptedException | ExecutionException e) {
+                updateStatusBar();
+                throw new RuntimeException("Failed to build the tiling for " + parameters, e);
+            }
+        }
     }
 
     class PainterScrollPane extends JScrollPane {
@@ -308,41 +413,30 @@ public class MultigridFrame extends JFrame {
             super.paintComponent(g);
 
             Graphics2D g2 = (Graphics2D) g.create();
-            g2.setRenderingHint(
-                    RenderingHints.KEY_ANTIALIASING,
-                    RenderingHints.VALUE_ANTIALIAS_ON);
-            AffineTransform newTransform = g2.getTransform();
-            newTransform.concatenate(getTransform());
-            g2.setTransform(newTransform);
-
-            g2.setStroke(new BasicStroke((float) .05, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
 //            debug(g2);
 //            drawLines(g2);
 
-            if (beforePainterList != null && !beforePainterList.isEmpty()) {
-                for (GridTile tile : multigrid.getTileList()) {
-                    for (RhombusPainter beforePainter : beforePainterList) {
-                        if (beforePainter.isEnabled()) {
-                            beforePainter.paint(g2, tile, reverseRhombi);
-                        }
+            // the layers of the enabled painters are painted in one pass over the tiles
+            List<RhombusPainter> painterList = new ArrayList<>();
+            if (beforePainterList != null) {
+                for (RhombusPainter beforePainter : beforePainterList) {
+                    if (beforePainter.isEnabled()) {
+                        painterList.add(beforePainter);
                     }
                 }
             }
-
-            for (GridTile tile : multigrid.getTileList()) {
-                mainPainter.paint(g2, tile, reverseRhombi);
-            }
-
-            if (afterPainterList != null && !afterPainterList.isEmpty()) {
-                for (GridTile tile : multigrid.getTileList()) {
-                    for (RhombusPainter afterPainter : afterPainterList) {
-                        if (afterPainter.isEnabled()) {
-                            afterPainter.paint(g2, tile, reverseRhombi);
-                        }
+            painterList.add(mainPainter);
+            if (afterPainterList != null) {
+                for (RhombusPainter afterPainter : afterPainterList) {
+                    if (afterPainter.isEnabled()) {
+                        painterList.add(afterPainter);
                     }
                 }
             }
-
+            rasterCache.paint(this, g2, tiling, getTransform(),
+                    new BasicStroke((float) .05, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND), getBackground(),
+                    painterList, reverseRhombi);
+            g2.dispose();
         }
 
         private void drawAxis(Graphics2D g2) {
@@ -388,11 +482,11 @@ public class MultigridFrame extends JFrame {
             int viewWidth = (int) (viewport.getWidth() * zoom);
             int viewHeight = (int) (viewport.getHeight() * zoom);
 
-            double scale = (double) Math.min(viewWidth, viewHeight) / (2 * (multigrid.getTilingRadius() + 1));
+            double scale = (double) Math.min(viewWidth, viewHeight) / (2 * (tiling.getTilingRadius() + 1));
             scale *= zoom;
             transform.scale(scale, scale);
-            if (multigrid.getSymmetry() % 2 == 1) {
-                transform.rotate(-Math.PI / (2 * multigrid.getSymmetry()));
+            if (tiling.getSymmetry() % 2 == 1) {
+                transform.rotate(-Math.PI / (2 * tiling.getSymmetry()));
             }
         }
 
@@ -465,47 +559,67 @@ public class MultigridFrame extends JFrame {
     }
 
     private void writeDxf() {
-        DXFDocument dxfDocument = new DXFDocument("Example DXF output from Java DXFGraphics");
-        // set units to mm
-        dxfDocument.setUnits(4);
-        // set precision digits to 8
-        dxfDocument.setPrecisionDigits(8);
-        // set to generate zero-length lines; default is to generate DXF point when a zero-length line is drawn
-        dxfDocument.generatePoints(false);
-
-        // set viewport params
-        dxfDocument.setViewportScale(70);
-        dxfDocument.setViewportCenter(120, 120);
-
-        // get the DXFGraphics object to draw into
-        DXFGraphics dxfGraphics = dxfDocument.getGraphics();
-
-        // scaling to 1/4 square meter
-        dxfGraphics.scale(250, 250);
-        //moving the origin to the lower-left corner, as expected for dxf files
-//        dxfGraphics.translate(1, -1);
-
-        if (multigrid.getSymmetry() % 2 == 1) {
-            dxfGraphics.rotate(-Math.PI / (2 * multigrid.getSymmetry()));
+        File selectedFile = chooseFile("Puzzle.dxf", "DXF", "dxf");
+        if (selectedFile != null) {
+            try {
+                DxfExporter exporter = new DxfExporter(getSelectedPanel().mainPainter, reverseRhombi);
+                exporter.setDeduplicated(true);
+                exporter.setChained(true);
+                exporter.write(tiling, selectedFile.toPath(), Runtime.getRuntime().availableProcessors());
+            } catch (Exception e) {
+                System.out.println("Exception while saving DXF file: " + e);
+            }
         }
+    }
 
-        // supply this as a Graphics subclass object to our main Draw method
-        dxfDocument.setLayer("Cut");
-
-        for (GridTile tile : multigrid.getTileList()) {
-            getSelectedPanel().mainPainter.paint(dxfGraphics, tile, reverseRhombi);
+    private void writeSvg() {
+        File selectedFile = chooseFile("Tiling.svg", "SVG", "svg");
+        if (selectedFile != null) {
+            try {
+                SvgExporter exporter = new SvgExporter(getSelectedPanel().mainPainter, reverseRhombi);
+                exporter.setDeduplicated(true);
+                exporter.setChained(true);
+                exporter.write(tiling, selectedFile.toPath(), Runtime.getRuntime().availableProcessors());
+            } catch (Exception e) {
+                System.out.println("Exception while saving SVG file: " + e);
+            }
         }
+    }
 
-        dxfDocument.setLayer("Construction");
-        double r = multigrid.getTilingRadius();
-        dxfGraphics.drawOval(-r, -r, 2 * r, 2 * r);
+    private void writeTiling() {
+        File selectedFile = chooseFile("Tiling.tiling", "Tiling", "tiling");
+        if (selectedFile != null) {
+            try {
+                TilingFile.write(tiling, selectedFile.toPath());
+            } catch (Exception e) {
+                System.out.println("Exception while saving tiling file: " + e);
+            }
+        }
+    }
 
-        // get the DXF output (just text)
-        String stringOutput = dxfDocument.toDXFString();
+    private void openTiling() {
+        JFileChooser chooser = new JFileChooser(new File(System.getProperty("user.dir")));
+        chooser.setFileFilter(new FileNameExtensionFilter("Tiling", "tiling"));
+        if (chooser.showOpenDialog(this) == JFileChooser.APPROVE_OPTION) {
+            try {
+                TilingFile file = TilingFile.map(chooser.getSelectedFile().toPath());
+                if (multigridWorker != null) {
+                    // the opened tiling is not replaced by a build of the spinner values
+                    multigridWorker.cancel(false);
+                    multigridWorker = null;
+                }
+                setTiling(file);
+            } catch (Exception e) {
+                System.out.println("Exception while opening tiling file: " + e);
+            }
+        }
+    }
 
+    // Returns the file to save or null if the saving is cancelled
+    private File chooseFile(String fileName, String description, String extension) {
         JFileChooser chooser = new JFileChooser(new File(System.getProperty("user.dir")));
-        chooser.setSelectedFile(new File("Puzzle.dxf"));
-        FileNameExtensionFilter filter = new FileNameExtensionFilter("DXF", "dxf");
+        chooser.setSelectedFile(new File(fileName));
+        FileNameExtensionFilter filter = new FileNameExtensionFilter(description, extension);
         chooser.setFileFilter(filter);
         int returnVal = chooser.showSaveDialog(this);
         if (returnVal == JFileChooser.APPROVE_OPTION) {
@@ -515,18 +629,12 @@ public class MultigridFrame extends JFrame {
                 int result = JOptionPane.showConfirmDialog(chooser, "The file exists, overwrite?", "Existing file", JOptionPane.YES_NO_CANCEL_OPTION);
                 if (result == JOptionPane.CANCEL_OPTION) {
                     chooser.cancelSelection();
-                    return;
+                    return null;
                 }
             }
-            try {
-                FileWriter fileWriter = new FileWriter(selectedFile);
-                fileWriter.write(stringOutput);
-                fileWriter.flush();
-                fileWriter.close();
-            } catch (Exception e) {
-                System.out.println("Exception while saving DXF file: " + e);
-            }
             chooser.approveSelection();
+            return selectedFile;
         }
+        return null;
     }
 }
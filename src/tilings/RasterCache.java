@@ -0,0 +1,264 @@
+package tilings;
+
+import tilings.multigrid.TileStore;
+import tilings.multigrid.Tiling;
+import tilings.painters.RhombusPainter;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.NoninvertibleTransformException;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.util.*;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Paints a tiling as the square raster tiles of a fixed size, so panning draws the images painted before.
+ * A raster tile is identified by the tiling, the painters, the transform, the reverse flag, the background
+ * and its place, so a change of any of them paints the tiles again and the other tiles are kept.
+ * The tiles are opaque, they are painted over the background like the panel.
+ * <p>
+ * The missing tiles of a repaint are painted in the common pool, meanwhile the overview of the view is drawn
+ * in their place if there is one, and every finished tile repaints its rectangle of the component.
+ * The least recently used tiles are evicted when their memory is more than maxBytes.
+ * The cache is used on the Event Dispatch Thread, it is cleared for a new tiling, so it does not keep the old ones.
+ * <p>
+ * When a tile side is less than OVERVIEW_SCALE pixels, the whole tiling is painted once at that scale and halved
+ * a few times, the level closest to the scale of the view is drawn. So the cost of a repaint depends on
+ * the pixels of the view and not on the number of the tiles.
+ */
+class RasterCache {
+    // the pixels per tile side of the first overview level
+    private static final double OVERVIEW_SCALE = 2;
+    // every level is half of the previous one
+    private static final int OVERVIEW_LEVELS = 6;
+
+    private final int tileSize;
+    private final long maxBytes;
+    // in the access order, the eldest entry is the least recently used one
+    private final LinkedHashMap<Key, BufferedImage> imageMap = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+    // the tiles being painted, a tile missing here when it is finished was cleared
+    private final Set<Key> pendingSet = new HashSet<>();
+    // counts the clears, so the queued tiles of a cleared cache are not painted
+    private volatile int generation;
+    // the overview of the last view painted below OVERVIEW_SCALE
+    private OverviewKey overviewKey;
+    private final List<BufferedImage> overviewList = new ArrayList<>();
+
+    RasterCache(int tileSize, long maxBytes) {
+        if (tileSize < 1 || maxBytes < 1) {
+            throw new IllegalArgumentException("Cache bounds must be positive: " + tileSize + ", " + maxBytes);
+        }
+        this.tileSize = tileSize;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Draws the raster tiles within the clip bounds, the transform maps the tiling to the component
+     * and the graphics may scale the component to the device pixels.
+     */
+    void paint(Component component, Graphics2D g2, Tiling tiling, AffineTransform transform, Stroke stroke,
+               Color background, List<RhombusPainter> painterList, boolean isReversed) {
+        Rectangle clipBounds = g2.getClipBounds();
+        if (clipBounds == null || clipBounds.isEmpty()) {
+            return;
+        }
+        // the tiles are painted at the device scale, so they stay sharp on the scaled screens
+        double deviceScale = Math.hypot(g2.getTransform().getScaleX(), g2.getTransform().getShearY());
+        if (getScale(transform) * deviceScale < OVERVIEW_SCALE) {
+            paintOverview(g2, tiling, transform, deviceScale, stroke, background, painterList, isReversed);
+            return;
+        }
+        int fromColumn = Math.floorDiv(clipBounds.x, tileSize);
+        int toColumn = Math.floorDiv(clipBounds.x + clipBounds.width - 1, tileSize);
+        int fromRow = Math.floorDiv(clipBounds.y, tileSize);
+        int toRow = Math.floorDiv(clipBounds.y + clipBounds.height - 1, tileSize);
+
+        List<RhombusPainter> painters = List.copyOf(painterList);
+        OverviewKey placeholderKey = getOverviewKey(tiling, transform, painters, isReversed, background);
+        for (int row = fromRow; row <= toRow; row++) {
+            for (int column = fromColumn; column <= toColumn; column++) {
+                Key key = new Key(tiling, painters, new AffineTransform(transform), deviceScale, isReversed,
+                        background, column, row);
+                Rectangle tileBounds = new Rectangle(column * tileSize, row * tileSize, tileSize, tileSize);
+                BufferedImage image = imageMap.get(key);
+                if (image != null) {
+                    g2.drawImage(image, tileBounds.x, tileBounds.y, tileSize, tileSize, null);
+                    continue;
+                }
+                if (pendingSet.add(key)) {
+                    int keyGeneration = generation;
+                    ForkJoinPool.commonPool().execute(() -> {
+                        BufferedImage newImage = null;
+                        try {
+                            if (keyGeneration == generation) {
+                                newImage = createImage(key, stroke);
+                            }
+                        } finally {
+                            BufferedImage result = newImage;
+                            SwingUtilities.invokeLater(() -> {
+                                // a failed tile is painted again by the next repaint
+                                if (pendingSet.remove(key) && result != null) {
+                                    put(key, result);
+                                    component.repaint(tileBounds.x, tileBounds.y, tileSize, tileSize);
+                                }
+                            });
+                        }
+                    });
+                }
+                if (placeholderKey.equals(overviewKey)) {
+                    Graphics2D placeholder = (Graphics2D) g2.create();
+                    placeholder.clip(tileBounds);
+                    drawOverview(placeholder, transform, deviceScale);
+                    placeholder.dispose();
+                }
+            }
+        }
+    }
+
+    // Drops all tiles and the overview, the tiles being painted are dropped when they are finished
+    void clear() {
+        imageMap.clear();
+        bytes = 0;
+        pendingSet.clear();
+        generation++;
+        overviewKey = null;
+        overviewList.clear();
+    }
+
+    private BufferedImage createImage(Key key, Stroke stroke) {
+        int pixelSize = (int) Math.ceil(tileSize * key.deviceScale());
+        BufferedImage image = new BufferedImage(pixelSize, pixelSize, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g2 = image.createGraphics();
+        try {
+            g2.setColor(key.background());
+            g2.fillRect(0, 0, pixelSize, pixelSize);
+            g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g2.scale(key.deviceScale(), key.deviceScale());
+            g2.translate(-key.column() * tileSize, -key.row() * tileSize);
+            Rectangle tileBounds = new Rectangle(key.column() * tileSize, key.row() * tileSize, tileSize, tileSize);
+            g2.transform(key.transform());
+            g2.setStroke(stroke);
+            TileStore tileStore = key.tiling().getTileStore();
+            int[] tiles = tileStore.getTileIndex().findTiles(getTilingBounds(tileBounds, key.transform()));
+            new TileRenderer().paint(g2, tileStore, tiles, key.painters(), key.isReversed(),
+                    getScale(key.transform()) * key.deviceScale());
+        } finally {
+            g2.dispose();
+        }
+        return image;
+    }
+
+    // Draws the overview level with the scale closest to the view, not smaller than it
+    private void paintOverview(Graphics2D g2, Tiling tiling, AffineTransform transform, double deviceScale,
+                               Stroke stroke, Color background, List<RhombusPainter> painterList, boolean isReversed) {
+        OverviewKey key = getOverviewKey(tiling, transform, List.copyOf(painterList), isReversed, background);
+        if (!key.equals(overviewKey)) {
+            overviewKey = key;
+            createOverview(key, stroke);
+        }
+        drawOverview(g2, transform, deviceScale);
+    }
+
+    private static OverviewKey getOverviewKey(Tiling tiling, AffineTransform transform, List<RhombusPainter> painters,
+                                              boolean isReversed, Color background) {
+        // the overview is painted with the rotation of the view, the rounding keeps it for every zoom
+        double angle = Math.round(Math.atan2(transform.getShearY(), transform.getScaleX()) * 1e9) / 1e9;
+        return new OverviewKey(tiling, painters, angle, isReversed, background);
+    }
+
+    private void drawOverview(Graphics2D g2, AffineTransform transform, double deviceScale) {
+        double scale = getScale(transform);
+        int level = (int) Math.floor(Math.log(OVERVIEW_SCALE / (scale * deviceScale)) / Math.log(2));
+        level = Math.max(0, Math.min(OVERVIEW_LEVELS, level));
+        // a pixel of the level is 2^level pixels of the first level, its center is the center of the tiling
+        double center = overviewList.getFirst().getWidth() / 2.0;
+        AffineTransform imageTransform = AffineTransform.getTranslateInstance(
+                transform.getTranslateX() - scale * center / OVERVIEW_SCALE,
+                transform.getTranslateY() - scale * center / OVERVIEW_SCALE);
+        imageTransform.scale(scale * (1 << level) / OVERVIEW_SCALE, scale * (1 << level) / OVERVIEW_SCALE);
+        g2.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g2.drawImage(overviewList.get(level), imageTransform, null);
+    }
+
+    private void createOverview(OverviewKey key, Stroke stroke) {
+        overviewList.clear();
+        TileStore tileStore = key.tiling().getTileStore();
+        // the size is divisible by every level, so the levels keep the center
+        int size = (int) Math.ceil(2 * (key.tiling().getTilingRadius() + 1) * OVERVIEW_SCALE);
+        size = ((size >> OVERVIEW_LEVELS) + 1) << OVERVIEW_LEVELS;
+        BufferedImage image = new BufferedImage(size, size, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g2 = image.createGraphics();
+        try {
+            g2.setColor(key.background());
+            g2.fillRect(0, 0, size, size);
+            g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g2.translate(size / 2.0, size / 2.0);
+            g2.rotate(key.angle());
+            g2.scale(OVERVIEW_SCALE, OVERVIEW_SCALE);
+            g2.setStroke(stroke);
+            int[] tiles = new int[tileStore.size()];
+            Arrays.setAll(tiles, tile -> tile);
+            new TileRenderer().paint(g2, tileStore, tiles, key.painters(), key.isReversed(), OVERVIEW_SCALE);
+        } finally {
+            g2.dispose();
+        }
+        overviewList.add(image);
+        for (int level = 1; level <= OVERVIEW_LEVELS; level++) {
+            size /= 2;
+            // the bilinear halving averages every 2 x 2 pixels
+            BufferedImage half = new BufferedImage(size, size, BufferedImage.TYPE_INT_RGB);
+            Graphics2D halfGraphics = half.createGraphics();
+            halfGraphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            halfGraphics.drawImage(image, 0, 0, size, size, null);
+            halfGraphics.dispose();
+            overviewList.add(half);
+            image = half;
+        }
+    }
+
+    // The pixels per tile side of the transform
+    private static double getScale(AffineTransform transform) {
+        return Math.sqrt(Math.abs(transform.getDeterminant()));
+    }
+
+    // The bounds of the tiling within the panel rectangle, with a margin for the outlines
+    private static Rectangle2D getTilingBounds(Rectangle bounds, AffineTransform transform) {
+        Rectangle2D tilingBounds;
+        try {
+            tilingBounds = transform.createInverse().createTransformedShape(bounds).getBounds2D();
+        } catch (NoninvertibleTransformException e) {
+            // this should never happen
+            throw new AssertionError(e);
+        }
+        tilingBounds.add(tilingBounds.getMinX() - .1, tilingBounds.getMinY() - .1);
+        tilingBounds.add(tilingBounds.getMaxX() + .1, tilingBounds.getMaxY() + .1);
+        return tilingBounds;
+    }
+
+    private void put(Key key, BufferedImage image) {
+        imageMap.put(key, image);
+        bytes += getBytes(image);
+        Iterator<BufferedImage> iterator = imageMap.values().iterator();
+        while (iterator.hasNext() && bytes > maxBytes) {
+            bytes -= getBytes(iterator.next());
+            iterator.remove();
+        }
+    }
+
+    private static long getBytes(BufferedImage image) {
+        return (long) image.getWidth() * image.getHeight() * Integer.BYTES;
+    }
+
+    private record OverviewKey(Tiling tiling, List<RhombusPainter> painters, double angle, boolean isReversed,
+                               Color background) {
+    }
+
+    // The painters and the tiling are compared by identity, the transform by its matrix
+    private record Key(Tiling tiling, List<RhombusPainter> painters, AffineTransform transform, double deviceScale,
+                       boolean isReversed, Color background, int column, int row) {
+    }
+}
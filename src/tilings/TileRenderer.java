@@ -0,0 +1,66 @@
+package tilings;
+
+import tilings.export.ShapeGraphics;
+import tilings.multigrid.TileStore;
+import tilings.painters.RhombusPainter;
+
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Path2D;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Paints the tiles of several painters in one pass over the tiles. The painters draw into a ShapeGraphics
+ * which appends their shapes to a Path2D batch per layer, color and kind, and every batch is filled or drawn
+ * by a single call at the end, so the cost of a Graphics call is paid per batch instead of per tile.
+ * <p>
+ * Every painter is a layer, the layers are painted in their order. The fills of a layer go first and its strokes
+ * after them like in SvgExporter, so the outlines of a layer are above its fills. The drawn shapes get the stroke
+ * of the graphics, the clips of the painters cut their shapes.
+ */
+class TileRenderer implements ShapeGraphics.ShapeSink {
+    private final List<Map<Color, Path2D.Double>> fillMapList = new ArrayList<>();
+    private final List<Map<Color, Path2D.Double>> strokeMapList = new ArrayList<>();
+    private int layer;
+
+    // Paints the tiles of the array seen at the scale in pixels per tile side, they are in the ascending order
+    void paint(Graphics2D g2, TileStore tileStore, int[] tiles, List<RhombusPainter> painterList, boolean isReversed,
+               double scale) {
+        ShapeGraphics graphics = new ShapeGraphics(this);
+        graphics.setStroke(g2.getStroke());
+        graphics.setClipping(true);
+        for (int i = 0; i < painterList.size(); i++) {
+            fillMapList.add(new LinkedHashMap<>());
+            strokeMapList.add(new LinkedHashMap<>());
+        }
+        try {
+            for (int tile : tiles) {
+                for (layer = 0; layer < painterList.size(); layer++) {
+                    painterList.get(layer).paint(graphics, tileStore, tile, isReversed, scale);
+                }
+            }
+            for (int i = 0; i < painterList.size(); i++) {
+                for (Map.Entry<Color, Path2D.Double> entry : fillMapList.get(i).entrySet()) {
+                    g2.setColor(entry.getKey());
+                    g2.fill(entry.getValue());
+                }
+                for (Map.Entry<Color, Path2D.Double> entry : strokeMapList.get(i).entrySet()) {
+                    g2.setColor(entry.getKey());
+                    g2.draw(entry.getValue());
+                }
+            }
+        } finally {
+            fillMapList.clear();
+            strokeMapList.clear();
+        }
+    }
+
+    @Override
+    public void addShape(Shape shape, AffineTransform transform, boolean isFilled, Color color) {
+        Path2D.Double path = (isFilled ? fillMapList : strokeMapList).get(layer).computeIfAbsent(color, c -> new Path2D.Double());
+        path.append(shape.getPathIterator(transform.isIdentity() ? null : transform), false);
+    }
+}
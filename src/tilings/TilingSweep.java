@@ -0,0 +1,262 @@
+package tilings;
+
+import tilings.multigrid.TileStore;
+import tilings.multigrid.Tiling;
+import tilings.multigrid.TilingEngine;
+import tilings.multigrid.TilingFile;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds the tilings of many parameter sets without the UI and writes a line of statistics for every run.
+ * <p>
+ * The runs go through every combination of the ranges, or a random ensemble of them with --random,
+ * where every grid gets its own random offset from the offset range. A range is a value, from..to
+ * with the step 1, or from..to:step. For example
+ * <pre>
+ * java tilings.TilingSweep --symmetry 5..7 --radius 4 --offset 0..0.9:0.1 --format json
+ * java tilings.TilingSweep --symmetry 7 --radius 6 --offset 0..1 --random 10000 --seed 1 --out runs.csv
+ * </pre>
+ * The runs are built in parallel, each by one thread. Only a few of them are in flight at once and their tilings
+ * are dropped after the statistics are written, so the memory does not grow with the number of runs.
+ * The lines are written in the order the runs are finished, the run column gives their order.
+ * With --save every tiling is saved into the directory as run-N.tiling, see TilingFile.
+ */
+public class TilingSweep {
+    private static final String CSV_HEADER = "run,engine,symmetry,radius,inset,offsets,tiles,areas,areaCounts,vertexIndexSets,buildMs";
+
+    private Range symmetryRange = new Range(5, 5, 1);
+    private Range radiusRange = new Range(3, 3, 1);
+    private Range offsetRange = new Range(.2, .2, 1);
+    private Range insetRange = new Range(0, 0, 1);
+    // the offsets of all grids or null to take them from the offset range
+    private List<Double> offsetList;
+    private TilingEngine engine = TilingEngine.MULTIGRID;
+    private boolean exact;
+    private boolean json;
+    private int randomCount;
+    private long seed = System.nanoTime();
+    private int threadCount = Runtime.getRuntime().availableProcessors();
+    private String outputName;
+    // the directory of the saved tilings or null
+    private Path saveDirectory;
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        TilingSweep sweep = new TilingSweep();
+        try {
+            sweep.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println("Options: --symmetry RANGE --radius RANGE --offset RANGE --offsets a,b,c... --inset RANGE");
+            System.err.println("         --random COUNT --seed SEED --engine multigrid|cut_and_project --exact");
+            System.err.println("         --threads COUNT --format csv|json --out FILE --save DIRECTORY");
+            System.exit(1);
+        }
+        sweep.run();
+    }
+
+    private void parse(String[] args) {
+        for (int a = 0; a < args.length; a++) {
+            String option = args[a];
+            if (option.equals("--exact")) {
+                exact = true;
+                continue;
+            }
+            if (a + 1 == args.length) {
+                throw new IllegalArgumentException("Missing value of " + option);
+            }
+            String value = args[++a];
+            switch (option) {
+                case "--symmetry" -> symmetryRange = Range.parse(value);
+                case "--radius" -> radiusRange = Range.parse(value);
+                case "--offset" -> offsetRange = Range.parse(value);
+                case "--inset" -> insetRange = Range.parse(value);
+                case "--offsets" -> {
+                    offsetList = new ArrayList<>();
+                    for (String offset : value.split(",")) {
+                        offsetList.add(Double.parseDouble(offset));
+                    }
+                    symmetryRange = new Range(offsetList.size(), offsetList.size(), 1);
+                }
+                case "--random" -> randomCount = Integer.parseInt(value);
+                case "--seed" -> seed = Long.parseLong(value);
+                case "--engine" -> engine = TilingEngine.valueOf(value.toUpperCase(Locale.ROOT));
+                case "--threads" -> threadCount = Integer.parseInt(value);
+                case "--format" -> {
+                    if (!value.equals("csv") && !value.equals("json")) {
+                        throw new IllegalArgumentException("Unknown format: " + value);
+                    }
+                    json = value.equals("json");
+                }
+                case "--out" -> outputName = value;
+                case "--save" -> saveDirectory = Path.of(value);
+                default -> throw new IllegalArgumentException("Unknown option: " + option);
+            }
+        }
+        if (threadCount < 1) {
+            throw new IllegalArgumentException("Thread count must be positive: " + threadCount);
+        }
+        // a later --symmetry replaces the symmetry of the offsets
+        if (offsetList != null && (symmetryRange.getCount() != 1 || symmetryRange.get(0) != offsetList.size())) {
+            throw new IllegalArgumentException("The offsets are given for the symmetry " + offsetList.size());
+        }
+    }
+
+    private void run() throws IOException, InterruptedException {
+        if (saveDirectory != null) {
+            Files.createDirectories(saveDirectory);
+        }
+        try (PrintWriter writer = outputName == null
+                ? new PrintWriter(new OutputStreamWriter(System.out), false)
+                : new PrintWriter(new BufferedWriter(new FileWriter(outputName)))) {
+            if (!json) {
+                writer.println(CSV_HEADER);
+            }
+            ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+            // a run takes a permit before it is created, so only a few parameter sets and tilings exist at once
+            Semaphore permits = new Semaphore(2 * threadCount);
+            Random random = new Random(seed);
+            long runCount = randomCount > 0 ? randomCount : getCombinationCount();
+            for (long run = 0; run < runCount; run++) {
+                Parameters parameters = randomCount > 0 ? createRandom(random) : createCombination(run);
+                long runNumber = run;
+                permits.acquire();
+                executor.execute(() -> {
+                    try {
+                        String line = build(runNumber, parameters);
+                        synchronized (writer) {
+                            writer.println(line);
+                            writer.flush();
+                        }
+                    } catch (RuntimeException | IOException e) {
+                        System.err.println("Run " + runNumber + " " + parameters + " failed: " + e);
+                    } finally {
+                        permits.release();
+                    }
+                });
+            }
+            executor.shutdown();
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+        }
+    }
+
+    private long getCombinationCount() {
+        long count = (long) symmetryRange.getCount() * radiusRange.getCount() * insetRange.getCount();
+        return offsetList != null ? count : count * offsetRange.getCount();
+    }
+
+    // The combination of the run, the offsets change first and the symmetry last
+    private Parameters createCombination(long run) {
+        double offset = 0;
+        if (offsetList == null) {
+            offset = offsetRange.get((int) (run % offsetRange.getCount()));
+            run /= offsetRange.getCount();
+        }
+        double inset = insetRange.get((int) (run % insetRange.getCount()));
+        run /= insetRange.getCount();
+        int radius = (int) radiusRange.get((int) (run % radiusRange.getCount()));
+        run /= radiusRange.getCount();
+        int symmetry = (int) symmetryRange.get((int) run);
+        return new Parameters(symmetry, radius, offsetList != null ? offsetList : Collections.nCopies(symmetry, offset), inset);
+    }
+
+    private Parameters createRandom(Random random) {
+        int symmetry = (int) symmetryRange.get(random.nextInt(symmetryRange.getCount()));
+        int radius = (int) radiusRange.get(random.nextInt(radiusRange.getCount()));
+        double inset = insetRange.get(random.nextInt(insetRange.getCount()));
+        List<Double> offsets = offsetList;
+        if (offsets == null) {
+            offsets = new ArrayList<>(symmetry);
+            for (int i = 0; i < symmetry; i++) {
+                offsets.add(offsetRange.from() + random.nextDouble() * (offsetRange.to() - offsetRange.from()));
+            }
+        }
+        return new Parameters(symmetry, radius, offsets, inset);
+    }
+
+    private String build(long run, Parameters parameters) throws IOException {
+        long start = System.nanoTime();
+        Tiling tiling = engine.create(parameters.symmetry(), parameters.radius(), parameters.offsetList(),
+                parameters.inset(), 1, exact);
+        long buildMs = (System.nanoTime() - start) / 1_000_000;
+        if (saveDirectory != null) {
+            TilingFile.write(tiling, saveDirectory.resolve("run-" + run + ".tiling"));
+        }
+
+        TileStore tileStore = tiling.getTileStore();
+        List<Double> areaList = tiling.getTileAreaList();
+        List<Integer> areaCountList = new ArrayList<>(Collections.nCopies(areaList.size(), 0));
+        for (int tile = 0; tile < tileStore.size(); tile++) {
+            int area = areaList.indexOf(tileStore.getArea(tile));
+            areaCountList.set(area, areaCountList.get(area) + 1);
+        }
+        List<List<Integer>> vertexIndexSets = new ArrayList<>(tiling.getVertexIndexSet());
+        vertexIndexSets.sort(Comparator.comparing(List::toString));
+
+        List<Object> values = List.of(run, engine.name().toLowerCase(Locale.ROOT), parameters.symmetry(),
+                parameters.radius(), parameters.inset(), parameters.offsetList(), tileStore.size(),
+                areaList, areaCountList, vertexIndexSets, buildMs);
+        return json ? toJson(values) : toCsv(values);
+    }
+
+    // The lists are written like JSON arrays, quoted in CSV
+    private static String toCsv(List<Object> values) {
+        StringJoiner joiner = new StringJoiner(",");
+        for (Object value : values) {
+            String text = value.toString();
+            joiner.add(text.contains(",") ? '"' + text + '"' : text);
+        }
+        return joiner.toString();
+    }
+
+    private static String toJson(List<Object> values) {
+        String[] names = CSV_HEADER.split(",");
+        StringJoiner joiner = new StringJoiner(", ", "{", "}");
+        for (int i = 0; i < names.length; i++) {
+            Object value = values.get(i);
+            String text = value instanceof String ? "\"" + value + "\"" : value.toString();
+            joiner.add('"' + names[i] + "\": " + text);
+        }
+        return joiner.toString();
+    }
+
+    private record Parameters(int symmetry, int radius, List<Double> offsetList, double inset) {
+    }
+
+    private record Range(double from, double to, double step) {
+        Range {
+            if (step <= 0 || to < from) {
+                throw new IllegalArgumentException("Wrong range: " + from + ".." + to + ":" + step);
+            }
+        }
+
+        static Range parse(String text) {
+            try {
+                String[] parts = text.split("\\.\\.|:");
+                double from = Double.parseDouble(parts[0]);
+                double to = parts.length > 1 ? Double.parseDouble(parts[1]) : from;
+                double step = parts.length > 2 ? Double.parseDouble(parts[2]) : 1;
+                return new Range(from, to, step);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Wrong range: " + text);
+            }
+        }
+
+        int getCount() {
+            return (int) Math.floor((to - from) / step + 1e-9) + 1;
+        }
+
+        // The values are rounded to drop the sum errors like 0.30000000000000004
+        double get(int i) {
+            return Math.round((from + i * step) * 1e9) / 1e9;
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package tilings.export;
+
+import tilings.multigrid.Tiling;
+import tilings.painters.RhombusPainter;
+
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.PathIterator;
+import java.util.Arrays;
+
+/**
+ * Exports the tiles as an AutoCAD R12 DXF file, the painted shapes are the lines and polylines of the layer "Cut"
+ * and the circle of the tiling radius is on the layer "Construction". The filled shapes are written as their outlines.
+ * <p>
+ * The tiles are scaled 250 times like before, so the unit tile has the side of 250 mm.
+ * R12 has no header variable of the units, the drawing units are meant as millimeters.
+ * The tilings of an odd symmetry are rotated to have a horizontal edge.
+ */
+public class DxfExporter extends TilingExporter {
+    private static final String CUT_LAYER = "Cut";
+    private static final String CONSTRUCTION_LAYER = "Construction";
+    private static final double SCALE = 250;
+    private static final int DIGITS = 8;
+    // the curves are split into the lines not farther than this from the curve
+    private static final double FLATNESS = .01;
+
+    public DxfExporter(RhombusPainter painter, boolean isReversed) {
+        super(painter, isReversed);
+    }
+
+    @Override
+    protected AffineTransform createTransform(Tiling tiling) {
+        // the y axis of DXF goes up
+        AffineTransform transform = AffineTransform.getScaleInstance(SCALE, -SCALE);
+        if (tiling.getSymmetry() % 2 == 1) {
+            transform.rotate(-Math.PI / (2 * tiling.getSymmetry()));
+        }
+        return transform;
+    }
+
+    @Override
+    protected void appendStart(StringBuilder out, Tiling tiling, AffineTransform transform) {
+        appendGroup(out, 999, "Multigrid tiling of symmetry " + tiling.getSymmetry());
+        appendGroup(out, 0, "SECTION");
+        appendGroup(out, 2, "HEADER");
+        appendGroup(out, 9, "$ACADVER");
+        appendGroup(out, 1, "AC1009");
+        appendGroup(out, 0, "ENDSEC");
+
+        appendGroup(out, 0, "SECTION");
+        appendGroup(out, 2, "TABLES");
+        appendGroup(out, 0, "TABLE");
+        appendGroup(out, 2, "LTYPE");
+        appendGroup(out, 70, "1");
+        appendGroup(out, 0, "LTYPE");
+        appendGroup(out, 2, "CONTINUOUS");
+        appendGroup(out, 70, "0");
+        appendGroup(out, 3, "Solid line");
+        appendGroup(out, 72, "65");
+        appendGroup(out, 73, "0");
+        appendGroup(out, 40, "0.0");
+        appendGroup(out, 0, "ENDTAB");
+        appendGroup(out, 0, "TABLE");
+        appendGroup(out, 2, "LAYER");
+        appendGroup(out, 70, "2");
+        for (String layer : new String[]{CUT_LAYER, CONSTRUCTION_LAYER}) {
+            appendGroup(out, 0, "LAYER");
+            appendGroup(out, 2, layer);
+            appendGroup(out, 70, "0");
+            appendGroup(out, 62, "7");
+            appendGroup(out, 6, "CONTINUOUS");
+        }
+        appendGroup(out, 0, "ENDTAB");
+        appendGroup(out, 0, "ENDSEC");
+
+        appendGroup(out, 0, "SECTION");
+        appendGroup(out, 2, "ENTITIES");
+    }
+
+    @Override
+    protected ShapeGraphics.ShapeSink createSink(StringBuilder out) {
+        return new EntitySink(out, CUT_LAYER);
+    }
+
+    @Override
+    protected void appendEnd(StringBuilder out, Tiling tiling, AffineTransform transform) {
+        double r = tiling.getTilingRadius();
+        new EntitySink(out, CONSTRUCTION_LAYER).addShape(new Ellipse2D.Double(-r, -r, 2 * r, 2 * r), transform, false, Color.BLACK);
+        appendGroup(out, 0, "ENDSEC");
+        appendGroup(out, 0, "EOF");
+    }
+
+    @Override
+    double getQuantum() {
+        return 1e-6;
+    }
+
+    @Override
+    boolean isFillCut() {
+        return true;
+    }
+
+    @Override
+    void appendPolylines(StringBuilder out, PolylineList polylines, int from, int to) {
+        EntitySink sink = new EntitySink(out, CUT_LAYER);
+        for (int p = from; p < to; p++) {
+            sink.pointCount = 0;
+            for (int point = 0; point < polylines.getPointCount(p); point++) {
+                sink.addPoint(polylines.getX(p, point), polylines.getY(p, point));
+            }
+            sink.appendPath(polylines.isClosed(p));
+        }
+    }
+
+    private static void appendGroup(StringBuilder out, int code, String value) {
+        out.append(code).append('\n').append(value).append('\n');
+    }
+
+    private static void appendPoint(StringBuilder out, double x, double y) {
+        out.append("10\n");
+        appendNumber(out, x, DIGITS);
+        out.append("\n20\n");
+        appendNumber(out, y, DIGITS);
+        out.append("\n30\n0\n");
+    }
+
+    private static void appendLine(StringBuilder out, String layer, double x0, double y0, double x1, double y1) {
+        appendGroup(out, 0, "LINE");
+        appendGroup(out, 8, layer);
+        appendPoint(out, x0, y0);
+        out.append("11\n");
+        appendNumber(out, x1, DIGITS);
+        out.append("\n21\n");
+        appendNumber(out, y1, DIGITS);
+        out.append("\n31\n0\n");
+    }
+
+    /**
+     * Writes the shapes as the entities of the layer, the circles as CIRCLE, the two point paths as LINE
+     * and the others as POLYLINE.
+     */
+    static class EntitySink implements ShapeGraphics.ShapeSink {
+        private final StringBuilder out;
+        private final String layer;
+        private final double[] coords = new double[6];
+        // the points of the current subpath
+        private double[] points = new double[32];
+        private int pointCount;
+
+        EntitySink(StringBuilder out, String layer) {
+            this.out = out;
+            this.layer = layer;
+        }
+
+        @Override
+        public void addShape(Shape shape, AffineTransform transform, boolean isFilled, Color color) {
+            if (shape instanceof Ellipse2D ellipse && ellipse.getWidth() == ellipse.getHeight() && isConformal(transform)) {
+                appendCircle(ellipse, transform);
+                return;
+            }
+            pointCount = 0;
+            for (PathIterator iterator = shape.getPathIterator(transform, FLATNESS); !iterator.isDone(); iterator.next()) {
+                switch (iterator.currentSegment(coords)) {
+                    case PathIterator.SEG_MOVETO -> {
+                        appendPath(false);
+                        addPoint(coords[0], coords[1]);
+                    }
+                    case PathIterator.SEG_LINETO -> addPoint(coords[0], coords[1]);
+                    case PathIterator.SEG_CLOSE -> appendPath(true);
+                    default -> throw new RuntimeException("Path is not flattened");
+                }
+            }
+            appendPath(false);
+        }
+
+        private void addPoint(double x, double y) {
+            if (2 * pointCount == points.length) {
+                points = Arrays.copyOf(points, 2 * points.length);
+            }
+            points[2 * pointCount] = x;
+            points[2 * pointCount + 1] = y;
+            pointCount++;
+        }
+
+        private void appendPath(boolean isClosed) {
+            int count = pointCount;
+            if (isClosed && count > 1 && points[0] == points[2 * count - 2] && points[1] == points[2 * count - 1]) {
+                count--;
+            }
+            if (count == 2) {
+                appendLine(out, layer, points[0], points[1], points[2], points[3]);
+            } else if (count > 2) {
+                appendGroup(out, 0, "POLYLINE");
+                appendGroup(out, 8, layer);
+                appendGroup(out, 66, "1");
+                appendPoint(out, 0, 0);
+                appendGroup(out, 70, isClosed ? "1" : "0");
+                for (int p = 0; p < count; p++) {
+                    appendGroup(out, 0, "VERTEX");
+                    appendGroup(out, 8, layer);
+                    appendPoint(out, points[2 * p], points[2 * p + 1]);
+                }
+                appendGroup(out, 0, "SEQEND");
+                appendGroup(out, 8, layer);
+            }
+            // a line after the close starts at the first point of the closed subpath
+            pointCount = isClosed && pointCount > 0 ? 1 : 0;
+        }
+
+        private void appendCircle(Ellipse2D circle, AffineTransform transform) {
+            double[] center = {circle.getCenterX(), circle.getCenterY()};
+            transform.transform(center, 0, center, 0, 1);
+            double radius = circle.getWidth() / 2 * Math.hypot(transform.getScaleX(), transform.getShearY());
+            appendGroup(out, 0, "CIRCLE");
+            appendGroup(out, 8, layer);
+            appendPoint(out, center[0], center[1]);
+            out.append("40\n");
+            appendNumber(out, radius, DIGITS);
+            out.append('\n');
+        }
+
+        // Tells if the transform keeps the circles, it is a rotation with the same scale of both axes and maybe a flip
+        private static boolean isConformal(AffineTransform transform) {
+            double a = transform.getScaleX(), b = transform.getShearX();
+            double c = transform.getShearY(), d = transform.getScaleY();
+            double tolerance = 1e-12 * (Math.abs(a) + Math.abs(b) + Math.abs(c) + Math.abs(d));
+            return (Math.abs(a - d) <= tolerance && Math.abs(b + c) <= tolerance)
+                    || (Math.abs(a + d) <= tolerance && Math.abs(b - c) <= tolerance);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package tilings.export;
+
+import java.util.Arrays;
+
+/**
+ * The cut polylines in the coordinates of the file with their colors, kept in primitive arrays.
+ * A closed polyline does not repeat its first point at the end.
+ */
+class PolylineList {
+    private double[] coords = new double[256];
+    private int pointCount;
+    // the first point of every polyline and the point count at the end
+    private int[] starts = new int[65];
+    private int[] colors = new int[64];
+    private boolean[] closedFlags = new boolean[64];
+    private int size;
+
+    // Every segment is a polyline of two points
+    static PolylineList of(SegmentList segments) {
+        PolylineList polylines = new PolylineList();
+        for (int s = 0; s < segments.size(); s++) {
+            polylines.addPoint(segments.getX0(s), segments.getY0(s));
+            polylines.addPoint(segments.getX1(s), segments.getY1(s));
+            polylines.endPolyline(segments.getColor(s), false);
+        }
+        return polylines;
+    }
+
+    void addPoint(double x, double y) {
+        if (2 * pointCount == coords.length) {
+            coords = Arrays.copyOf(coords, 2 * coords.length);
+        }
+        coords[2 * pointCount] = x;
+        coords[2 * pointCount + 1] = y;
+        pointCount++;
+    }
+
+    // Ends the polyline of the points added after the previous one
+    void endPolyline(int color, boolean isClosed) {
+        if (size == colors.length) {
+            colors = Arrays.copyOf(colors, 2 * size);
+            closedFlags = Arrays.copyOf(closedFlags, 2 * size);
+            starts = Arrays.copyOf(starts, 2 * size + 1);
+        }
+        colors[size] = color;
+        closedFlags[size] = isClosed;
+        starts[++size] = pointCount;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int getPointCount(int polyline) {
+        return starts[polyline + 1] - starts[polyline];
+    }
+
+    double getX(int polyline, int point) {
+        return coords[2 * (starts[polyline] + point)];
+    }
+
+    double getY(int polyline, int point) {
+        return coords[2 * (starts[polyline] + point) + 1];
+    }
+
+    // The RGB color of the polyline
+    int getColor(int polyline) {
+        return colors[polyline];
+    }
+
+    boolean isClosed(int polyline) {
+        return closedFlags[polyline];
+    }
+}
@@ -0,0 +1,254 @@
+package tilings.export;
+
+import java.util.Arrays;
+
+/**
+ * Joins the segments into long polylines, so the cutter lifts its head less often.
+ * The end points closer than the tolerance are welded into vertices found in a hash of square cells.
+ * A chain starts at a segment and goes on through its vertices in both directions, at every vertex it takes
+ * the unused segment of the same color which turns the least. So the collinear segments touching each other
+ * become a straight run and the inner points of the runs are dropped, the other segments are chained into
+ * connected paths. A chain coming back to its first vertex is a closed polyline.
+ * <p>
+ * The segments are chained in their order, the result does not depend on the number of threads.
+ */
+class SegmentChainer {
+    private final double tolerance;
+    private final double cellSize;
+
+    // the welded vertices
+    private double[] vertexXs = new double[256];
+    private double[] vertexYs = new double[256];
+    private int[] nextVertices = new int[256];
+    private int vertexCount;
+    // the open addressing table of the cells, every cell has a list of its vertices
+    private long[] cellKeys = new long[2 * 256];
+    private int[] cellHeads = new int[256];
+    private int cellCount;
+
+    // The end points closer than the tolerance are joined
+    SegmentChainer(double tolerance) {
+        this.tolerance = tolerance;
+        this.cellSize = 2 * tolerance;
+        Arrays.fill(cellHeads, -1);
+    }
+
+    PolylineList chain(SegmentList segments) {
+        int size = segments.size();
+        int[] segmentVertices = new int[2 * size];
+        for (int s = 0; s < size; s++) {
+            segmentVertices[2 * s] = getVertex(segments.getX0(s), segments.getY0(s));
+            segmentVertices[2 * s + 1] = getVertex(segments.getX1(s), segments.getY1(s));
+        }
+
+        // the segments of every vertex in the compressed rows
+        int[] vertexStarts = new int[vertexCount + 1];
+        for (int vertex : segmentVertices) {
+            vertexStarts[vertex + 1]++;
+        }
+        for (int v = 0; v < vertexCount; v++) {
+            vertexStarts[v + 1] += vertexStarts[v];
+        }
+        int[] vertexSegments = new int[2 * size];
+        int[] filled = Arrays.copyOf(vertexStarts, vertexCount);
+        for (int end = 0; end < 2 * size; end++) {
+            vertexSegments[filled[segmentVertices[end]]++] = end >> 1;
+        }
+
+        PolylineList polylines = new PolylineList();
+        boolean[] isUsed = new boolean[size];
+        IntArray forward = new IntArray();
+        IntArray backward = new IntArray();
+        IntArray chain = new IntArray();
+        for (int s = 0; s < size; s++) {
+            if (isUsed[s] || segmentVertices[2 * s] == segmentVertices[2 * s + 1]) {
+                continue;
+            }
+            isUsed[s] = true;
+            int color = segments.getColor(s);
+            int first = segmentVertices[2 * s];
+            int last = segmentVertices[2 * s + 1];
+            extend(first, last, color, segmentVertices, vertexStarts, vertexSegments, segments, isUsed, forward);
+            backward.clear();
+            if (forward.size == 0 || forward.values[forward.size - 1] != first) {
+                extend(last, first, color, segmentVertices, vertexStarts, vertexSegments, segments, isUsed, backward);
+            }
+
+            // the backward vertices are reversed before the segment and the forward ones
+            chain.clear();
+            for (int i = backward.size - 1; i >= 0; i--) {
+                chain.add(backward.values[i]);
+            }
+            chain.add(first);
+            chain.add(last);
+            for (int i = 0; i < forward.size; i++) {
+                chain.add(forward.values[i]);
+            }
+            addPolyline(polylines, chain.values, chain.size, color);
+        }
+        return polylines;
+    }
+
+    // Goes on from the vertex coming from the previous one and puts the passed vertices to the array
+    private void extend(int previous, int vertex, int color, int[] segmentVertices, int[] vertexStarts,
+                        int[] vertexSegments, SegmentList segments, boolean[] isUsed, IntArray vertices) {
+        vertices.clear();
+        while (true) {
+            double dx = vertexXs[vertex] - vertexXs[previous];
+            double dy = vertexYs[vertex] - vertexYs[previous];
+            double length = Math.hypot(dx, dy);
+            int best = -1;
+            int bestVertex = -1;
+            double bestCos = Double.NEGATIVE_INFINITY;
+            for (int i = vertexStarts[vertex]; i < vertexStarts[vertex + 1]; i++) {
+                int segment = vertexSegments[i];
+                if (isUsed[segment] || segments.getColor(segment) != color) {
+                    continue;
+                }
+                int next = segmentVertices[2 * segment] == vertex ? segmentVertices[2 * segment + 1] : segmentVertices[2 * segment];
+                if (next == vertex) {
+                    continue;
+                }
+                double nx = vertexXs[next] - vertexXs[vertex];
+                double ny = vertexYs[next] - vertexYs[vertex];
+                double cos = (dx * nx + dy * ny) / (length * Math.hypot(nx, ny));
+                if (cos > bestCos) {
+                    bestCos = cos;
+                    best = segment;
+                    bestVertex = next;
+                }
+            }
+            if (best == -1) {
+                return;
+            }
+            isUsed[best] = true;
+            vertices.add(bestVertex);
+            previous = vertex;
+            vertex = bestVertex;
+        }
+    }
+
+    // Adds the chain of vertices without the inner points of the straight runs
+    private void addPolyline(PolylineList polylines, int[] chain, int count, int color) {
+        boolean isClosed = count > 3 && chain[0] == chain[count - 1];
+        if (isClosed) {
+            count--;
+        }
+        // a closed chain starts at a corner, so its first point is not in the middle of a run
+        int start = 0;
+        if (isClosed) {
+            while (start < count && isStraight(chain[(start + count - 1) % count], chain[start], chain[(start + 1) % count])) {
+                start++;
+            }
+            if (start == count) {
+                start = 0;
+            }
+        }
+        int first = chain[start];
+        polylines.addPoint(vertexXs[first], vertexYs[first]);
+        int previous = first;
+        for (int i = 1; i < count; i++) {
+            int vertex = chain[(start + i) % count];
+            boolean isLast = i == count - 1 && !isClosed;
+            if (isLast || !isStraight(previous, vertex, chain[(start + i + 1) % count])) {
+                polylines.addPoint(vertexXs[vertex], vertexYs[vertex]);
+                previous = vertex;
+            }
+        }
+        polylines.endPolyline(color, isClosed);
+    }
+
+    // Tells if the vertex is on the straight way from the previous one to the next one within the tolerance
+    private boolean isStraight(int previous, int vertex, int next) {
+        double ax = vertexXs[vertex] - vertexXs[previous];
+        double ay = vertexYs[vertex] - vertexYs[previous];
+        double bx = vertexXs[next] - vertexXs[vertex];
+        double by = vertexYs[next] - vertexYs[vertex];
+        // the cross product is the distance of the vertex from the way times its length
+        return ax * bx + ay * by > 0 && Math.abs(ax * by - ay * bx) <= tolerance * Math.hypot(ax + bx, ay + by);
+    }
+
+    // Returns the vertex within the tolerance of the point, a new vertex is created if there is none
+    private int getVertex(double x, double y) {
+        long cellX = (long) Math.floor(x / cellSize);
+        long cellY = (long) Math.floor(y / cellSize);
+        // the tolerance is half of the cell, so only the nearest neighbouring cells are checked
+        long nearX = x - cellX * cellSize < tolerance ? cellX - 1 : cellX + 1;
+        long nearY = y - cellY * cellSize < tolerance ? cellY - 1 : cellY + 1;
+        for (int cell = 0; cell < 4; cell++) {
+            int slot = findCell((cell & 1) == 0 ? cellX : nearX, (cell & 2) == 0 ? cellY : nearY);
+            for (int v = cellHeads[slot]; v != -1; v = nextVertices[v]) {
+                if (Math.abs(vertexXs[v] - x) <= tolerance && Math.abs(vertexYs[v] - y) <= tolerance) {
+                    return v;
+                }
+            }
+        }
+
+        if (vertexCount == vertexXs.length) {
+            vertexXs = Arrays.copyOf(vertexXs, 2 * vertexCount);
+            vertexYs = Arrays.copyOf(vertexYs, 2 * vertexCount);
+            nextVertices = Arrays.copyOf(nextVertices, 2 * vertexCount);
+        }
+        int slot = findCell(cellX, cellY);
+        if (cellHeads[slot] == -1) {
+            cellKeys[2 * slot] = cellX;
+            cellKeys[2 * slot + 1] = cellY;
+            cellCount++;
+        }
+        vertexXs[vertexCount] = x;
+        vertexYs[vertexCount] = y;
+        nextVertices[vertexCount] = cellHeads[slot];
+        cellHeads[slot] = vertexCount;
+        if (cellCount * 2 > cellHeads.length) {
+            rehash();
+        }
+        return vertexCount++;
+    }
+
+    // The slot of the cell or the empty slot where it goes
+    private int findCell(long cellX, long cellY) {
+        int slot = cellHash(cellX, cellY) & (cellHeads.length - 1);
+        while (cellHeads[slot] != -1 && (cellKeys[2 * slot] != cellX || cellKeys[2 * slot + 1] != cellY)) {
+            slot = (slot + 1) & (cellHeads.length - 1);
+        }
+        return slot;
+    }
+
+    private void rehash() {
+        long[] oldKeys = cellKeys;
+        int[] oldHeads = cellHeads;
+        cellKeys = new long[2 * oldKeys.length];
+        cellHeads = new int[2 * oldHeads.length];
+        Arrays.fill(cellHeads, -1);
+        for (int slot = 0; slot < oldHeads.length; slot++) {
+            if (oldHeads[slot] != -1) {
+                int newSlot = findCell(oldKeys[2 * slot], oldKeys[2 * slot + 1]);
+                cellKeys[2 * newSlot] = oldKeys[2 * slot];
+                cellKeys[2 * newSlot + 1] = oldKeys[2 * slot + 1];
+                cellHeads[newSlot] = oldHeads[slot];
+            }
+        }
+    }
+
+    private static int cellHash(long cellX, long cellY) {
+        long key = cellX * 0x9E3779B97F4A7C15L + cellY;
+        key ^= key >>> 29;
+        return (int) (key ^ (key >>> 32));
+    }
+
+    private static class IntArray {
+        private int[] values = new int[16];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, 2 * size);
+            }
+            values[size++] = value;
+        }
+
+        void clear() {
+            size = 0;
+        }
+    }
+}
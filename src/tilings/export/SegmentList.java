@@ -0,0 +1,60 @@
+package tilings.export;
+
+import java.util.Arrays;
+
+/**
+ * The stroked line segments of a chunk with their colors in the coordinates of the file,
+ * kept in primitive arrays without an object per segment.
+ */
+class SegmentList {
+    private double[] coords = new double[256];
+    private int[] colors = new int[64];
+    private int size;
+
+    void add(double x0, double y0, double x1, double y1, int color) {
+        if (size == colors.length) {
+            colors = Arrays.copyOf(colors, 2 * size);
+            coords = Arrays.copyOf(coords, 8 * size);
+        }
+        coords[4 * size] = x0;
+        coords[4 * size + 1] = y0;
+        coords[4 * size + 2] = x1;
+        coords[4 * size + 3] = y1;
+        colors[size++] = color;
+    }
+
+    void addAll(SegmentList list) {
+        for (int s = 0; s < list.size; s++) {
+            add(list.getX0(s), list.getY0(s), list.getX1(s), list.getY1(s), list.getColor(s));
+        }
+    }
+
+    void clear() {
+        size = 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    double getX0(int segment) {
+        return coords[4 * segment];
+    }
+
+    double getY0(int segment) {
+        return coords[4 * segment + 1];
+    }
+
+    double getX1(int segment) {
+        return coords[4 * segment + 2];
+    }
+
+    double getY1(int segment) {
+        return coords[4 * segment + 3];
+    }
+
+    // The RGB color of the segment
+    int getColor(int segment) {
+        return colors[segment];
+    }
+}
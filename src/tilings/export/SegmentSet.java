@@ -0,0 +1,171 @@
+package tilings.export;
+
+import java.util.Arrays;
+
+/**
+ * Keeps the parts of the lines which are already drawn, so every edge shared by neighbouring tiles is cut once.
+ * A segment is put on its infinite line, found by the quantized direction and distance from the origin
+ * in an open addressing table. Every line keeps the sorted disjoint intervals which are covered,
+ * a new segment gives only its parts which are not covered yet, so the duplicates and the overlapping
+ * collinear pieces are dropped. The intervals touching each other are joined, so a line made of many pieces
+ * has a single interval. The cost of a segment is a hash lookup and a binary search in its line.
+ * <p>
+ * The segments are added in the order they are written, the result does not depend on the number of threads.
+ */
+class SegmentSet {
+    // the directions of the segments on the same line differ by the rounding errors of their end points
+    private static final double DIRECTION_QUANTUM = 1e-9;
+
+    private final double quantum;
+    // the quantized direction x, direction y and distance of every line
+    private long[] lineKeys = new long[3 * 64];
+    private int[] slots = new int[128];
+    private int lineCount;
+    // the start and end of every interval of the line in the units of quantum
+    private long[][] lineIntervals = new long[64][];
+    private int[] intervalCounts = new int[64];
+
+    // The segments closer than quantum are on the same line, the intervals are rounded to quantum
+    SegmentSet(double quantum) {
+        this.quantum = quantum;
+        Arrays.fill(slots, -1);
+    }
+
+    /**
+     * Adds the segments and returns their parts which were not covered before, the colors are kept.
+     */
+    SegmentList add(SegmentList segments) {
+        SegmentList result = new SegmentList();
+        for (int s = 0; s < segments.size(); s++) {
+            add(segments.getX0(s), segments.getY0(s), segments.getX1(s), segments.getY1(s), segments.getColor(s), result);
+        }
+        return result;
+    }
+
+    private void add(double x0, double y0, double x1, double y1, int color, SegmentList result) {
+        double dx = x1 - x0;
+        double dy = y1 - y0;
+        double length = Math.hypot(dx, dy);
+        if (length < quantum) {
+            return;
+        }
+        // the direction goes to the right or up, so both ways of a segment give the same line
+        if (dx < 0 || (dx == 0 && dy < 0)) {
+            double x = x0, y = y0;
+            x0 = x1;
+            y0 = y1;
+            x1 = x;
+            y1 = y;
+            dx = -dx;
+            dy = -dy;
+        }
+        double ux = dx / length;
+        double uy = dy / length;
+        int line = getLine(Math.round(ux / DIRECTION_QUANTUM), Math.round(uy / DIRECTION_QUANTUM),
+                Math.round((x0 * uy - y0 * ux) / quantum));
+        long start = Math.round((x0 * ux + y0 * uy) / quantum);
+        long end = Math.round((x1 * ux + y1 * uy) / quantum);
+        if (end <= start) {
+            return;
+        }
+
+        long[] intervals = lineIntervals[line];
+        int count = intervalCounts[line];
+        // the first interval which ends at the start or later
+        int first = findFirstEnd(intervals, count, start);
+        int last = first;
+        long covered = start;
+        while (last < count && intervals[2 * last] <= end) {
+            // the pieces of a quantum are the rounding errors of the shared end points
+            if (intervals[2 * last] > covered + 1) {
+                addPiece(x0, y0, x1, y1, start, end, covered, intervals[2 * last], color, result);
+            }
+            covered = Math.max(covered, intervals[2 * last + 1]);
+            last++;
+        }
+        if (covered + 1 < end) {
+            addPiece(x0, y0, x1, y1, start, end, covered, end, color, result);
+        }
+
+        // the intervals from first to last are replaced by their union with the segment
+        long unionStart = first < last ? Math.min(start, intervals[2 * first]) : start;
+        long unionEnd = first < last ? Math.max(end, intervals[2 * last - 1]) : end;
+        int newCount = count - (last - first) + 1;
+        if (2 * newCount > intervals.length) {
+            intervals = Arrays.copyOf(intervals, Math.max(4, 2 * intervals.length));
+            lineIntervals[line] = intervals;
+        }
+        System.arraycopy(intervals, 2 * last, intervals, 2 * (first + 1), 2 * (count - last));
+        intervals[2 * first] = unionStart;
+        intervals[2 * first + 1] = unionEnd;
+        intervalCounts[line] = newCount;
+    }
+
+    // Adds the part of the segment from the start to the end position, the end points of the segment are kept exactly
+    private static void addPiece(double x0, double y0, double x1, double y1, long segmentStart, long segmentEnd,
+                                 long start, long end, int color, SegmentList result) {
+        double from = (double) (start - segmentStart) / (segmentEnd - segmentStart);
+        double to = (double) (end - segmentStart) / (segmentEnd - segmentStart);
+        result.add(start == segmentStart ? x0 : x0 + from * (x1 - x0),
+                start == segmentStart ? y0 : y0 + from * (y1 - y0),
+                end == segmentEnd ? x1 : x0 + to * (x1 - x0),
+                end == segmentEnd ? y1 : y0 + to * (y1 - y0), color);
+    }
+
+    private static int findFirstEnd(long[] intervals, int count, long position) {
+        int low = 0, high = count;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (intervals[2 * middle + 1] < position) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    // Returns the index of the line, a new line is created if it is not found
+    private int getLine(long directionX, long directionY, long distance) {
+        int slot = hash(directionX, directionY, distance) & (slots.length - 1);
+        while (slots[slot] != -1) {
+            int line = slots[slot];
+            if (lineKeys[3 * line] == directionX && lineKeys[3 * line + 1] == directionY && lineKeys[3 * line + 2] == distance) {
+                return line;
+            }
+            slot = (slot + 1) & (slots.length - 1);
+        }
+        if (lineCount == intervalCounts.length) {
+            lineKeys = Arrays.copyOf(lineKeys, 6 * lineCount);
+            lineIntervals = Arrays.copyOf(lineIntervals, 2 * lineCount);
+            intervalCounts = Arrays.copyOf(intervalCounts, 2 * lineCount);
+        }
+        lineKeys[3 * lineCount] = directionX;
+        lineKeys[3 * lineCount + 1] = directionY;
+        lineKeys[3 * lineCount + 2] = distance;
+        lineIntervals[lineCount] = new long[2];
+        slots[slot] = lineCount++;
+        if (lineCount * 2 > slots.length) {
+            rehash();
+        }
+        return lineCount - 1;
+    }
+
+    private void rehash() {
+        slots = new int[slots.length * 2];
+        Arrays.fill(slots, -1);
+        for (int line = 0; line < lineCount; line++) {
+            int slot = hash(lineKeys[3 * line], lineKeys[3 * line + 1], lineKeys[3 * line + 2]) & (slots.length - 1);
+            while (slots[slot] != -1) {
+                slot = (slot + 1) & (slots.length - 1);
+            }
+            slots[slot] = line;
+        }
+    }
+
+    private static int hash(long directionX, long directionY, long distance) {
+        long key = (directionX * 0x9E3779B97F4A7C15L + directionY) * 0x9E3779B97F4A7C15L + distance;
+        key ^= key >>> 29;
+        return (int) (key ^ (key >>> 32));
+    }
+}
@@ -0,0 +1,67 @@
+package tilings.export;
+
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.PathIterator;
+
+/**
+ * Collects the straight sides of the cut shapes as segments for the SegmentSet and passes the other shapes
+ * to the sink of the exporter. The shapes with curves are passed whole, so the circles are kept.
+ */
+class SegmentSink implements ShapeGraphics.ShapeSink {
+    private final ShapeGraphics.ShapeSink sink;
+    private final boolean isFillCut;
+    private final SegmentList segments = new SegmentList();
+    private final double[] coords = new double[6];
+    // the points of the shape, they are added after the whole path is checked for curves
+    private final SegmentList shapeSegments = new SegmentList();
+
+    // The filled shapes are cut too if isFillCut is set, otherwise they are passed to the sink
+    SegmentSink(ShapeGraphics.ShapeSink sink, boolean isFillCut) {
+        this.sink = sink;
+        this.isFillCut = isFillCut;
+    }
+
+    @Override
+    public void addShape(Shape shape, AffineTransform transform, boolean isFilled, Color color) {
+        if (isFilled && !isFillCut) {
+            sink.addShape(shape, transform, true, color);
+            return;
+        }
+        int rgb = color.getRGB();
+        shapeSegments.clear();
+        double lastX = 0, lastY = 0;
+        double startX = 0, startY = 0;
+        for (PathIterator iterator = shape.getPathIterator(transform); !iterator.isDone(); iterator.next()) {
+            switch (iterator.currentSegment(coords)) {
+                case PathIterator.SEG_MOVETO -> {
+                    startX = coords[0];
+                    startY = coords[1];
+                }
+                case PathIterator.SEG_LINETO -> shapeSegments.add(lastX, lastY, coords[0], coords[1], rgb);
+                case PathIterator.SEG_CLOSE -> {
+                    shapeSegments.add(lastX, lastY, startX, startY, rgb);
+                    coords[0] = startX;
+                    coords[1] = startY;
+                }
+                default -> {
+                    sink.addShape(shape, transform, isFilled, color);
+                    return;
+                }
+            }
+            lastX = coords[0];
+            lastY = coords[1];
+        }
+        segments.addAll(shapeSegments);
+    }
+
+    @Override
+    public void flush() {
+        sink.flush();
+    }
+
+    // The segments of the cut shapes in the order they are painted
+    SegmentList getSegments() {
+        return segments;
+    }
+}
@@ -0,0 +1,716 @@
+package tilings.export;
+
+import java.awt.*;
+import java.awt.font.FontRenderContext;
+import java.awt.font.GlyphVector;
+import java.awt.geom.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.BufferedImageOp;
+import java.awt.image.ImageObserver;
+import java.awt.image.RenderedImage;
+import java.awt.image.renderable.RenderableImage;
+import java.text.AttributedCharacterIterator;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * The graphics which gives every drawn or filled shape to the sink instead of rendering it,
+ * the painters draw into it to export their tiles as vector shapes. The text is given as the glyph outlines,
+ * the images are skipped like an empty copyArea, so a painter drawing one exports its other shapes.
+ * The clip is kept for the painters but does not cut the shapes unless the clipping is set.
+ * <p>
+ * A copy made by create() has its own state and gives the shapes to the same sink.
+ */
+public class ShapeGraphics extends Graphics2D {
+    private static final FontRenderContext FONT_RENDER_CONTEXT = new FontRenderContext(null, true, true);
+
+    private final ShapeSink sink;
+    private AffineTransform transform;
+    private Color color = Color.BLACK;
+    private Paint paint = Color.BLACK;
+    private Color background = Color.WHITE;
+    private Stroke stroke = new BasicStroke();
+    private Font font = new Font(Font.SANS_SERIF, Font.PLAIN, 12);
+    private Composite composite = AlphaComposite.SrcOver;
+    private final RenderingHints hints = new RenderingHints(null);
+    // in the user space of the current transform like the clip of Graphics2D
+    private Shape clip;
+    private boolean isClipping;
+
+    public ShapeGraphics(ShapeSink sink) {
+        this(sink, new AffineTransform());
+    }
+
+    public ShapeGraphics(ShapeSink sink, AffineTransform transform) {
+        this.sink = sink;
+        this.transform = new AffineTransform(transform);
+    }
+
+    private ShapeGraphics(ShapeGraphics graphics) {
+        sink = graphics.sink;
+        transform = new AffineTransform(graphics.transform);
+        color = graphics.color;
+        paint = graphics.paint;
+        background = graphics.background;
+        stroke = graphics.stroke;
+        font = graphics.font;
+        composite = graphics.composite;
+        hints.putAll(graphics.hints);
+        clip = graphics.clip;
+        isClipping = graphics.isClipping;
+    }
+
+    /**
+     * Sets if the shapes are cut by the clip before they go to the sink. A convex polygon clip cuts the polygons
+     * and the lines quickly, the lines on its border are kept. Otherwise the shapes are cut as areas
+     * and the drawn ones are stroked and given as filled.
+     */
+    public void setClipping(boolean isClipping) {
+        this.isClipping = isClipping;
+    }
+
+    @Override
+    public Graphics create() {
+        return new ShapeGraphics(this);
+    }
+
+    @Override
+    public void dispose() {
+    }
+
+    @Override
+    public void draw(Shape s) {
+        if (isClipping && clip != null) {
+            Shape lines = cutLines(s);
+            if (lines != null) {
+                sink.addShape(lines, transform, false, color);
+            } else {
+                fill(stroke.createStrokedShape(s));
+            }
+        } else {
+            sink.addShape(s, transform, false, color);
+        }
+    }
+
+    @Override
+    public void fill(Shape s) {
+        sink.addShape(isClipping && clip != null ? cut(s) : s, transform, true, color);
+    }
+
+    // The part of the shape inside the clip
+    private Shape cut(Shape shape) {
+        double[] clipPoints = getConvexPolygon(clip);
+        Path2D.Double result = new Path2D.Double();
+        double[] coords = new double[6];
+        double[] points = new double[16];
+        int count = 0;
+        for (PathIterator iterator = shape.getPathIterator(null); clipPoints != null && !iterator.isDone(); iterator.next()) {
+            int segment = iterator.currentSegment(coords);
+            if (segment == PathIterator.SEG_MOVETO || segment == PathIterator.SEG_CLOSE) {
+                appendCut(result, points, count, clipPoints);
+                count = 0;
+            }
+            if (segment == PathIterator.SEG_MOVETO || segment == PathIterator.SEG_LINETO) {
+                if (2 * count == points.length) {
+                    points = Arrays.copyOf(points, 2 * points.length);
+                }
+                points[2 * count] = coords[0];
+                points[2 * count + 1] = coords[1];
+                count++;
+            } else if (segment != PathIterator.SEG_CLOSE) {
+                clipPoints = null;
+            }
+        }
+        if (clipPoints == null) {
+            Area area = new Area(shape);
+            area.intersect(new Area(clip));
+            return area;
+        }
+        appendCut(result, points, count, clipPoints);
+        return result;
+    }
+
+    // The lines of the shape inside the clip or null if the clip is not a convex polygon or the shape has curves
+    private Shape cutLines(Shape shape) {
+        double[] clipPoints = getConvexPolygon(clip);
+        if (clipPoints == null) {
+            return null;
+        }
+        Path2D.Double result = new Path2D.Double();
+        double[] coords = new double[6];
+        double[] line = new double[4];
+        double startX = 0, startY = 0;
+        double lastX = 0, lastY = 0;
+        for (PathIterator iterator = shape.getPathIterator(null); !iterator.isDone(); iterator.next()) {
+            int segment = iterator.currentSegment(coords);
+            if (segment == PathIterator.SEG_MOVETO) {
+                startX = coords[0];
+                startY = coords[1];
+            } else if (segment == PathIterator.SEG_LINETO || segment == PathIterator.SEG_CLOSE) {
+                line[0] = lastX;
+                line[1] = lastY;
+                line[2] = segment == PathIterator.SEG_CLOSE ? startX : coords[0];
+                line[3] = segment == PathIterator.SEG_CLOSE ? startY : coords[1];
+                if (cutLine(line, clipPoints)) {
+                    Point2D current = result.getCurrentPoint();
+                    if (current == null || current.getX() != line[0] || current.getY() != line[1]) {
+                        result.moveTo(line[0], line[1]);
+                    }
+                    result.lineTo(line[2], line[3]);
+                }
+                if (segment == PathIterator.SEG_CLOSE) {
+                    coords[0] = startX;
+                    coords[1] = startY;
+                }
+            } else {
+                return null;
+            }
+            lastX = coords[0];
+            lastY = coords[1];
+        }
+        return result;
+    }
+
+    // Cuts the line from x0, y0 to x1, y1 by the convex polygon and tells if a part is left, it is the Cyrus-Beck algorithm
+    private static boolean cutLine(double[] line, double[] clipPoints) {
+        double dx = line[2] - line[0];
+        double dy = line[3] - line[1];
+        double from = 0;
+        double to = 1;
+        int clipCount = clipPoints.length / 2;
+        for (int c = 0; c < clipCount; c++) {
+            double cx = clipPoints[2 * c];
+            double cy = clipPoints[2 * c + 1];
+            double ex = clipPoints[2 * ((c + 1) % clipCount)] - cx;
+            double ey = clipPoints[2 * ((c + 1) % clipCount) + 1] - cy;
+            // the points on the border within the rounding errors are inside
+            double tolerance = 1e-9 * (Math.abs(ex) + Math.abs(ey));
+            double side = ex * (line[1] - cy) - ey * (line[0] - cx) + tolerance * Math.hypot(ex, ey);
+            double change = ex * dy - ey * dx;
+            if (change == 0) {
+                if (side < 0) {
+                    return false;
+                }
+            } else if (change > 0) {
+                from = Math.max(from, -side / change);
+            } else {
+                to = Math.min(to, -side / change);
+            }
+        }
+        if (from >= to) {
+            return false;
+        }
+        double x0 = line[0];
+        double y0 = line[1];
+        line[0] = x0 + from * dx;
+        line[1] = y0 + from * dy;
+        line[2] = x0 + to * dx;
+        line[3] = y0 + to * dy;
+        return true;
+    }
+
+    // Appends the polygon cut by the convex polygon of the clip, it is the Sutherland-Hodgman algorithm
+    private static void appendCut(Path2D.Double result, double[] points, int count, double[] clipPoints) {
+        int clipCount = clipPoints.length / 2;
+        for (int c = 0; c < clipCount && count > 0; c++) {
+            double cx = clipPoints[2 * c];
+            double cy = clipPoints[2 * c + 1];
+            double ex = clipPoints[2 * ((c + 1) % clipCount)] - cx;
+            double ey = clipPoints[2 * ((c + 1) % clipCount) + 1] - cy;
+            double[] cutPoints = new double[4 * count];
+            int cutCount = 0;
+            for (int p = 0; p < count; p++) {
+                double sx = points[2 * ((p + count - 1) % count)];
+                double sy = points[2 * ((p + count - 1) % count) + 1];
+                double px = points[2 * p];
+                double py = points[2 * p + 1];
+                // the inside of the counterclockwise clip is on the left of its edges
+                double sSide = ex * (sy - cy) - ey * (sx - cx);
+                double pSide = ex * (py - cy) - ey * (px - cx);
+                if ((sSide >= 0) != (pSide >= 0)) {
+                    double t = sSide / (sSide - pSide);
+                    cutPoints[2 * cutCount] = sx + t * (px - sx);
+                    cutPoints[2 * cutCount + 1] = sy + t * (py - sy);
+                    cutCount++;
+                }
+                if (pSide >= 0) {
+                    cutPoints[2 * cutCount] = px;
+                    cutPoints[2 * cutCount + 1] = py;
+                    cutCount++;
+                }
+            }
+            points = cutPoints;
+            count = cutCount;
+        }
+        if (count > 2) {
+            result.moveTo(points[0], points[1]);
+            for (int p = 1; p < count; p++) {
+                result.lineTo(points[2 * p], points[2 * p + 1]);
+            }
+            result.closePath();
+        }
+    }
+
+    // The counterclockwise points of the shape if it is a convex polygon, otherwise null
+    private static double[] getConvexPolygon(Shape shape) {
+        double[] coords = new double[6];
+        double[] points = new double[16];
+        int count = 0;
+        for (PathIterator iterator = shape.getPathIterator(null); !iterator.isDone(); iterator.next()) {
+            int segment = iterator.currentSegment(coords);
+            if (segment == PathIterator.SEG_CLOSE) {
+                continue;
+            }
+            if (segment != PathIterator.SEG_LINETO && (segment != PathIterator.SEG_MOVETO || count > 0)) {
+                return null;
+            }
+            if (2 * count == points.length) {
+                points = Arrays.copyOf(points, 2 * points.length);
+            }
+            points[2 * count] = coords[0];
+            points[2 * count + 1] = coords[1];
+            count++;
+        }
+        if (count > 1 && points[0] == points[2 * count - 2] && points[1] == points[2 * count - 1]) {
+            count--;
+        }
+        if (count < 3) {
+            return null;
+        }
+        double area = 0;
+        int turns = 0;
+        for (int p = 0; p < count; p++) {
+            int q = (p + 1) % count;
+            int r = (p + 2) % count;
+            area += points[2 * p] * points[2 * q + 1] - points[2 * q] * points[2 * p + 1];
+            double turn = (points[2 * q] - points[2 * p]) * (points[2 * r + 1] - points[2 * q + 1])
+                    - (points[2 * q + 1] - points[2 * p + 1]) * (points[2 * r] - points[2 * q]);
+            turns |= turn > 0 ? 1 : turn < 0 ? 2 : 0;
+        }
+        if (turns == 3) {
+            return null;
+        }
+        double[] polygon = new double[2 * count];
+        for (int p = 0; p < count; p++) {
+            int from = area > 0 ? p : count - 1 - p;
+            polygon[2 * p] = points[2 * from];
+            polygon[2 * p + 1] = points[2 * from + 1];
+        }
+        return polygon;
+    }
+
+    @Override
+    public void drawLine(int x1, int y1, int x2, int y2) {
+        draw(new Line2D.Double(x1, y1, x2, y2));
+    }
+
+    @Override
+    public void drawRect(int x, int y, int width, int height) {
+        draw(new Rectangle2D.Double(x, y, width, height));
+    }
+
+    @Override
+    public void fillRect(int x, int y, int width, int height) {
+        fill(new Rectangle2D.Double(x, y, width, height));
+    }
+
+    @Override
+    public void clearRect(int x, int y, int width, int height) {
+    }
+
+    @Override
+    public void drawRoundRect(int x, int y, int width, int height, int arcWidth, int arcHeight) {
+        draw(new RoundRectangle2D.Double(x, y, width, height, arcWidth, arcHeight));
+    }
+
+    @Override
+    public void fillRoundRect(int x, int y, int width, int height, int arcWidth, int arcHeight) {
+        fill(new RoundRectangle2D.Double(x, y, width, height, arcWidth, arcHeight));
+    }
+
+    @Override
+    public void drawOval(int x, int y, int width, int height) {
+        draw(new Ellipse2D.Double(x, y, width, height));
+    }
+
+    @Override
+    public void fillOval(int x, int y, int width, int height) {
+        fill(new Ellipse2D.Double(x, y, width, height));
+    }
+
+    @Override
+    public void drawArc(int x, int y, int width, int height, int startAngle, int arcAngle) {
+        draw(new Arc2D.Double(x, y, width, height, startAngle, arcAngle, Arc2D.OPEN));
+    }
+
+    @Override
+    public void fillArc(int x, int y, int width, int height, int startAngle, int arcAngle) {
+        fill(new Arc2D.Double(x, y, width, height, startAngle, arcAngle, Arc2D.PIE));
+    }
+
+    @Override
+    public void drawPolyline(int[] xPoints, int[] yPoints, int nPoints) {
+        if (nPoints > 0) {
+            draw(createPath(xPoints, yPoints, nPoints, false));
+        }
+    }
+
+    @Override
+    public void drawPolygon(int[] xPoints, int[] yPoints, int nPoints) {
+        if (nPoints > 0) {
+            draw(createPath(xPoints, yPoints, nPoints, true));
+        }
+    }
+
+    @Override
+    public void fillPolygon(int[] xPoints, int[] yPoints, int nPoints) {
+        if (nPoints > 0) {
+            fill(createPath(xPoints, yPoints, nPoints, true));
+        }
+    }
+
+    private static Path2D createPath(int[] xPoints, int[] yPoints, int nPoints, boolean isClosed) {
+        Path2D.Double path = new Path2D.Double();
+        path.moveTo(xPoints[0], yPoints[0]);
+        for (int i = 1; i < nPoints; i++) {
+            path.lineTo(xPoints[i], yPoints[i]);
+        }
+        if (isClosed) {
+            path.closePath();
+        }
+        return path;
+    }
+
+    @Override
+    public void drawString(String str, int x, int y) {
+        drawString(str, (float) x, (float) y);
+    }
+
+    @Override
+    public void drawString(String str, float x, float y) {
+        fill(font.createGlyphVector(getFontRenderContext(), str).getOutline(x, y));
+    }
+
+    @Override
+    public void drawString(AttributedCharacterIterator iterator, int x, int y) {
+        drawString(iterator, (float) x, (float) y);
+    }
+
+    @Override
+    public void drawString(AttributedCharacterIterator iterator, float x, float y) {
+        StringBuilder text = new StringBuilder();
+        for (char c = iterator.first(); c != AttributedCharacterIterator.DONE; c = iterator.next()) {
+            text.append(c);
+        }
+        drawString(text.toString(), x, y);
+    }
+
+    @Override
+    public void drawGlyphVector(GlyphVector g, float x, float y) {
+        fill(g.getOutline(x, y));
+    }
+
+    @Override
+    public boolean drawImage(Image img, AffineTransform xform, ImageObserver obs) {
+        // the images are skipped, there is no vector shape for them
+        return true;
+    }
+
+    @Override
+    public void drawImage(BufferedImage img, BufferedImageOp op, int x, int y) {
+    }
+
+    @Override
+    public void drawRenderedImage(RenderedImage img, AffineTransform xform) {
+    }
+
+    @Override
+    public void drawRenderableImage(RenderableImage img, AffineTransform xform) {
+    }
+
+    @Override
+    public boolean drawImage(Image img, int x, int y, ImageObserver observer) {
+        return true;
+    }
+
+    @Override
+    public boolean drawImage(Image img, int x, int y, int width, int height, ImageObserver observer) {
+        return true;
+    }
+
+    @Override
+    public boolean drawImage(Image img, int x, int y, Color bgcolor, ImageObserver observer) {
+        return true;
+    }
+
+    @Override
+    public boolean drawImage(Image img, int x, int y, int width, int height, Color bgcolor, ImageObserver observer) {
+        return true;
+    }
+
+    @Override
+    public boolean drawImage(Image img, int dx1, int dy1, int dx2, int dy2, int sx1, int sy1, int sx2, int sy2,
+                             ImageObserver observer) {
+        return true;
+    }
+
+    @Override
+    public boolean drawImage(Image img, int dx1, int dy1, int dx2, int dy2, int sx1, int sy1, int sx2, int sy2,
+                             Color bgcolor, ImageObserver observer) {
+        return true;
+    }
+
+    @Override
+    public void copyArea(int x, int y, int width, int height, int dx, int dy) {
+    }
+
+    @Override
+    public boolean hit(Rectangle rect, Shape s, boolean onStroke) {
+        Shape shape = onStroke ? stroke.createStrokedShape(s) : s;
+        return transform.createTransformedShape(shape).intersects(rect);
+    }
+
+    @Override
+    public GraphicsConfiguration getDeviceConfiguration() {
+        return null;
+    }
+
+    @Override
+    public FontRenderContext getFontRenderContext() {
+        return FONT_RENDER_CONTEXT;
+    }
+
+    @Override
+    public FontMetrics getFontMetrics(Font f) {
+        return new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB).getGraphics().getFontMetrics(f);
+    }
+
+    @Override
+    public Color getColor() {
+        return color;
+    }
+
+    @Override
+    public void setColor(Color c) {
+        if (c != null) {
+            color = c;
+            paint = c;
+        }
+    }
+
+    @Override
+    public Paint getPaint() {
+        return paint;
+    }
+
+    @Override
+    public void setPaint(Paint paint) {
+        if (paint instanceof Color c) {
+            setColor(c);
+        } else if (paint != null) {
+            this.paint = paint;
+        }
+    }
+
+    @Override
+    public void setPaintMode() {
+    }
+
+    @Override
+    public void setXORMode(Color c1) {
+    }
+
+    @Override
+    public Color getBackground() {
+        return background;
+    }
+
+    @Override
+    public void setBackground(Color color) {
+        background = color;
+    }
+
+    @Override
+    public Stroke getStroke() {
+        return stroke;
+    }
+
+    @Override
+    public void setStroke(Stroke s) {
+        stroke = s;
+    }
+
+    @Override
+    public Composite getComposite() {
+        return composite;
+    }
+
+    @Override
+    public void setComposite(Composite comp) {
+        composite = comp;
+    }
+
+    @Override
+    public Font getFont() {
+        return font;
+    }
+
+    @Override
+    public void setFont(Font font) {
+        if (font != null) {
+            this.font = font;
+        }
+    }
+
+    @Override
+    public void setRenderingHint(RenderingHints.Key hintKey, Object hintValue) {
+        hints.put(hintKey, hintValue);
+    }
+
+    @Override
+    public Object getRenderingHint(RenderingHints.Key hintKey) {
+        return hints.get(hintKey);
+    }
+
+    @Override
+    public void setRenderingHints(Map<?, ?> hints) {
+        this.hints.clear();
+        this.hints.putAll(hints);
+    }
+
+    @Override
+    public void addRenderingHints(Map<?, ?> hints) {
+        this.hints.putAll(hints);
+    }
+
+    @Override
+    public RenderingHints getRenderingHints() {
+        return (RenderingHints) hints.clone();
+    }
+
+    @Override
+    public void translate(int x, int y) {
+        translate((double) x, y);
+    }
+
+    @Override
+    public void translate(double tx, double ty) {
+        transformClip(AffineTransform.getTranslateInstance(tx, ty));
+        transform.translate(tx, ty);
+    }
+
+    @Override
+    public void rotate(double theta) {
+        transformClip(AffineTransform.getRotateInstance(theta));
+        transform.rotate(theta);
+    }
+
+    @Override
+    public void rotate(double theta, double x, double y) {
+        transformClip(AffineTransform.getRotateInstance(theta, x, y));
+        transform.rotate(theta, x, y);
+    }
+
+    @Override
+    public void scale(double sx, double sy) {
+        transformClip(AffineTransform.getScaleInstance(sx, sy));
+        transform.scale(sx, sy);
+    }
+
+    @Override
+    public void shear(double shx, double shy) {
+        transformClip(AffineTransform.getShearInstance(shx, shy));
+        transform.shear(shx, shy);
+    }
+
+    @Override
+    public void transform(AffineTransform tx) {
+        transformClip(tx);
+        transform.concatenate(tx);
+    }
+
+    @Override
+    public void setTransform(AffineTransform tx) {
+        if (clip != null) {
+            Shape deviceClip = transform.createTransformedShape(clip);
+            transform = new AffineTransform(tx);
+            clip = createInverseShape(deviceClip);
+        } else {
+            transform = new AffineTransform(tx);
+        }
+    }
+
+    @Override
+    public AffineTransform getTransform() {
+        return new AffineTransform(transform);
+    }
+
+    // Keeps the clip in the user space of the transform concatenated with tx
+    private void transformClip(AffineTransform tx) {
+        if (clip != null) {
+            try {
+                clip = tx.createInverse().createTransformedShape(clip);
+            } catch (NoninvertibleTransformException e) {
+                throw new RuntimeException("Transform is not invertible: " + tx, e);
+            }
+        }
+    }
+
+    private Shape createInverseShape(Shape deviceShape) {
+        try {
+            return transform.createInverse().createTransformedShape(deviceShape);
+        } catch (NoninvertibleTransformException e) {
+            throw new RuntimeException("Transform is not invertible: " + transform, e);
+        }
+    }
+
+    @Override
+    public Shape getClip() {
+        return clip;
+    }
+
+    @Override
+    public Rectangle getClipBounds() {
+        return clip == null ? null : clip.getBounds();
+    }
+
+    @Override
+    public void setClip(Shape clip) {
+        this.clip = clip;
+    }
+
+    @Override
+    public void setClip(int x, int y, int width, int height) {
+        setClip(new Rectangle(x, y, width, height));
+    }
+
+    @Override
+    public void clip(Shape s) {
+        if (s == null) {
+            clip = null;
+        } else if (clip == null) {
+            clip = s;
+        } else {
+            Area area = new Area(clip);
+            area.intersect(new Area(s));
+            clip = area;
+        }
+    }
+
+    @Override
+    public void clipRect(int x, int y, int width, int height) {
+        clip(new Rectangle(x, y, width, height));
+    }
+
+    /**
+     * Receives the shapes of the painters with the transform of the graphics, the shape is in the user space.
+     * The transform is not copied, it can change after the call.
+     */
+    public interface ShapeSink {
+        void addShape(Shape shape, AffineTransform transform, boolean isFilled, Color color);
+
+        // Writes the shapes which the sink keeps to group them
+        default void flush() {
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package tilings.export;
+
+import tilings.multigrid.Tiling;
+import tilings.painters.RhombusPainter;
+
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.PathIterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Exports the tiles as an SVG file looking like the tiling on the screen. The shapes of every chunk
+ * are grouped by their color into one path, the filled ones go first. The layer "Cut" has the tiles
+ * and the layer "Construction" has the circle of the tiling radius.
+ * <p>
+ * A tile side is SCALE units of SVG. The path data has DIGITS digits after the point and uses the relative moves,
+ * the rounded points do not drift because every move is the difference of two rounded points.
+ */
+public class SvgExporter extends TilingExporter {
+    private static final double SCALE = 100;
+    private static final int DIGITS = 2;
+    private static final double STROKE_WIDTH = .05;
+    private static final double FLATNESS = .01;
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    public SvgExporter(RhombusPainter painter, boolean isReversed) {
+        super(painter, isReversed);
+    }
+
+    @Override
+    protected AffineTransform createTransform(Tiling tiling) {
+        return AffineTransform.getScaleInstance(SCALE, SCALE);
+    }
+
+    @Override
+    protected void appendStart(StringBuilder out, Tiling tiling, AffineTransform transform) {
+        double size = (tiling.getTilingRadius() + 1) * SCALE;
+        out.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        out.append("<svg xmlns=\"http://www.w3.org/2000/svg\" viewBox=\"");
+        appendNumber(out, -size, DIGITS);
+        out.append(' ');
+        appendNumber(out, -size, DIGITS);
+        out.append(' ');
+        appendNumber(out, 2 * size, DIGITS);
+        out.append(' ');
+        appendNumber(out, 2 * size, DIGITS);
+        out.append("\">\n");
+        out.append("<g id=\"Cut\" fill=\"none\" stroke=\"none\" stroke-width=\"");
+        appendNumber(out, STROKE_WIDTH * SCALE, DIGITS);
+        out.append("\" stroke-linecap=\"round\" stroke-linejoin=\"round\">\n");
+    }
+
+    @Override
+    protected ShapeGraphics.ShapeSink createSink(StringBuilder out) {
+        return new PathSink(out);
+    }
+
+    @Override
+    protected void appendEnd(StringBuilder out, Tiling tiling, AffineTransform transform) {
+        out.append("</g>\n");
+        out.append("<g id=\"Construction\" fill=\"none\" stroke=\"#808080\" stroke-width=\"");
+        appendNumber(out, STROKE_WIDTH * SCALE, DIGITS);
+        out.append("\">\n<circle cx=\"0\" cy=\"0\" r=\"");
+        appendNumber(out, tiling.getTilingRadius() * SCALE, DIGITS);
+        out.append("\"/>\n</g>\n</svg>\n");
+    }
+
+    @Override
+    double getQuantum() {
+        return 1.0 / getScale(DIGITS);
+    }
+
+    @Override
+    boolean isFillCut() {
+        return false;
+    }
+
+    @Override
+    void appendPolylines(StringBuilder out, PolylineList polylines, int from, int to) {
+        Map<Integer, StringBuilder> strokeMap = new LinkedHashMap<>();
+        double unitScale = getScale(DIGITS);
+        for (int p = from; p < to; p++) {
+            StringBuilder data = strokeMap.computeIfAbsent(polylines.getColor(p), c -> new StringBuilder());
+            long lastX = Math.round(polylines.getX(p, 0) * unitScale);
+            long lastY = Math.round(polylines.getY(p, 0) * unitScale);
+            data.append('M');
+            appendUnits(data, lastX, DIGITS);
+            data.append(' ');
+            appendUnits(data, lastY, DIGITS);
+            for (int point = 1; point < polylines.getPointCount(p); point++) {
+                long x = Math.round(polylines.getX(p, point) * unitScale);
+                long y = Math.round(polylines.getY(p, point) * unitScale);
+                data.append(point == 1 ? 'l' : ' ');
+                appendUnits(data, x - lastX, DIGITS);
+                data.append(' ');
+                appendUnits(data, y - lastY, DIGITS);
+                lastX = x;
+                lastY = y;
+            }
+            if (polylines.isClosed(p)) {
+                data.append('z');
+            }
+        }
+        for (Map.Entry<Integer, StringBuilder> entry : strokeMap.entrySet()) {
+            out.append("<path stroke=\"");
+            appendColor(out, new Color(entry.getKey()));
+            out.append("\" d=\"").append(entry.getValue()).append("\"/>\n");
+        }
+    }
+
+    private static void appendColor(StringBuilder out, Color color) {
+        out.append('#');
+        int rgb = color.getRGB();
+        for (int shift = 20; shift >= 0; shift -= 4) {
+            out.append(HEX_DIGITS[(rgb >> shift) & 0xf]);
+        }
+    }
+
+    /**
+     * Collects the path data of every color of the chunk and writes a path element per color on flush.
+     */
+    static class PathSink implements ShapeGraphics.ShapeSink {
+        private final StringBuilder out;
+        private final Map<Color, StringBuilder> fillMap = new LinkedHashMap<>();
+        private final Map<Color, StringBuilder> strokeMap = new LinkedHashMap<>();
+        private final double[] coords = new double[6];
+        private final double unitScale = getScale(DIGITS);
+
+        PathSink(StringBuilder out) {
+            this.out = out;
+        }
+
+        @Override
+        public void addShape(Shape shape, AffineTransform transform, boolean isFilled, Color color) {
+            StringBuilder data = (isFilled ? fillMap : strokeMap).computeIfAbsent(color, c -> new StringBuilder());
+            long lastX = 0, lastY = 0;
+            long startX = 0, startY = 0;
+            boolean hasLast = false;
+            for (PathIterator iterator = shape.getPathIterator(transform, FLATNESS); !iterator.isDone(); iterator.next()) {
+                int segment = iterator.currentSegment(coords);
+                if (segment == PathIterator.SEG_CLOSE) {
+                    // the next move is relative to the start of the closed subpath
+                    data.append('z');
+                    lastX = startX;
+                    lastY = startY;
+                    continue;
+                }
+                long x = Math.round(coords[0] * unitScale);
+                long y = Math.round(coords[1] * unitScale);
+                if (segment == PathIterator.SEG_MOVETO || !hasLast) {
+                    data.append('M');
+                    appendUnits(data, x, DIGITS);
+                    data.append(' ');
+                    appendUnits(data, y, DIGITS);
+                    startX = x;
+                    startY = y;
+                } else {
+                    data.append('l');
+                    appendUnits(data, x - lastX, DIGITS);
+                    data.append(' ');
+                    appendUnits(data, y - lastY, DIGITS);
+                }
+                lastX = x;
+                lastY = y;
+                hasLast = true;
+            }
+        }
+
+        @Override
+        public void flush() {
+            for (Map.Entry<Color, StringBuilder> entry : fillMap.entrySet()) {
+                out.append("<path fill=\"");
+                appendColor(out, entry.getKey());
+                out.append("\" d=\"").append(entry.getValue()).append("\"/>\n");
+            }
+            for (Map.Entry<Color, StringBuilder> entry : strokeMap.entrySet()) {
+                out.append("<path stroke=\"");
+                appendColor(out, entry.getKey());
+                out.append("\" d=\"").append(entry.getValue()).append("\"/>\n");
+            }
+            fillMap.clear();
+            strokeMap.clear();
+        }
+    }
+}
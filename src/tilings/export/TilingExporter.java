@@ -0,0 +1,294 @@
+package tilings.export;
+
+import tilings.multigrid.BuildExecutor;
+import tilings.multigrid.TileStore;
+import tilings.multigrid.Tiling;
+import tilings.painters.RhombusPainter;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.awt.geom.AffineTransform;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Writes the tiles drawn by a painter as a vector file without keeping the whole file in memory.
+ * The tiles are split into chunks, the text of the chunks is made on the shared pool of BuildExecutor
+ * and written in their order, only a few chunks wait to be written at once.
+ * <p>
+ * If the export is deduplicated, the straight cut lines of the chunks go through a SegmentSet in the order of the chunks,
+ * so an edge shared by two tiles is written once and the file is the same for any parallelism.
+ * If the export is chained, the tiles go by the horizontal bands of CHAIN_BAND_HEIGHT and their cut lines are kept
+ * and joined into long polylines by a SegmentChainer. The kept segments take a few dozen bytes each, they are chained
+ * and written at the end of the first band after CHAIN_SEGMENTS of them, so the polylines are broken at those bands.
+ * The deduplication keeps the covered parts of every line to the end.
+ * The polylines are written POLYLINE_BATCH at a time, so no text holds all of them.
+ */
+public abstract class TilingExporter {
+    static final int CHUNK_SIZE = 2048;
+    // the height of a band of the chained export in the tile sides
+    private static final double CHAIN_BAND_HEIGHT = 4;
+    private static final int CHAIN_SEGMENTS = 1 << 16;
+    private static final int POLYLINE_BATCH = 1 << 14;
+
+    private final RhombusPainter painter;
+    private final boolean isReversed;
+    private boolean isDeduplicated;
+    private boolean isChained;
+
+    protected TilingExporter(RhombusPainter painter, boolean isReversed) {
+        this.painter = painter;
+        this.isReversed = isReversed;
+    }
+
+    // Sets if the shared and overlapping cut lines are written once
+    public void setDeduplicated(boolean isDeduplicated) {
+        this.isDeduplicated = isDeduplicated;
+    }
+
+    public boolean isDeduplicated() {
+        return isDeduplicated;
+    }
+
+    // Sets if the touching cut lines are joined into polylines, the collinear ones into a single line
+    public void setChained(boolean isChained) {
+        this.isChained = isChained;
+    }
+
+    public boolean isChained() {
+        return isChained;
+    }
+
+    public void write(Tiling tiling, Path file, int parallelism) throws IOException {
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file), 1 << 16)) {
+            write(tiling, out, parallelism);
+        }
+    }
+
+    public void write(Tiling tiling, OutputStream out, int parallelism) throws IOException {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+        }
+        AffineTransform transform = createTransform(tiling);
+        StringBuilder start = new StringBuilder();
+        appendStart(start, tiling, transform);
+        write(out, start);
+
+        TileStore tileStore = tiling.getTileStore();
+        SegmentSet segmentSet = isDeduplicated ? new SegmentSet(getQuantum()) : null;
+        SegmentList chainedSegments = isChained ? new SegmentList() : null;
+        int[] tiles = new int[tileStore.size()];
+        int[] tileBands = new int[tileStore.size()];
+        if (isChained) {
+            sortByBands(tileStore, tiles, tileBands);
+        } else {
+            Arrays.setAll(tiles, tile -> tile);
+        }
+        int[] chunkStarts = createChunkStarts(tileBands);
+        int chunkCount = chunkStarts.length - 1;
+        if (parallelism == 1 || chunkCount < 2) {
+            for (int chunk = 0; chunk < chunkCount; chunk++) {
+                write(out, createChunk(tileStore, tiles, tileBands, chunkStarts[chunk], chunkStarts[chunk + 1], transform),
+                        segmentSet, chainedSegments);
+            }
+        } else {
+            ForkJoinPool pool = BuildExecutor.getPool(parallelism);
+            ArrayDeque<Future<Chunk>> pendingChunks = new ArrayDeque<>();
+            try {
+                int nextChunk = 0;
+                while (nextChunk < chunkCount || !pendingChunks.isEmpty()) {
+                    while (nextChunk < chunkCount && pendingChunks.size() < 2 * parallelism) {
+                        int from = chunkStarts[nextChunk];
+                        int to = chunkStarts[++nextChunk];
+                        pendingChunks.add(pool.submit(() ->
+                                createChunk(tileStore, tiles, tileBands, from, to, transform)));
+                    }
+                    write(out, pendingChunks.poll().get(), segmentSet, chainedSegments);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Export is interrupted");
+            } catch (ExecutionException e) {
+                throw new RuntimeException("Failed to export the tiles", e.getCause());
+            } finally {
+                // the chunks of a failed export are not made
+                for (Future<Chunk> pendingChunk : pendingChunks) {
+                    pendingChunk.cancel(true);
+                }
+            }
+        }
+
+        if (chainedSegments != null) {
+            writePolylines(out, new SegmentChainer(getQuantum()).chain(chainedSegments));
+        }
+        StringBuilder end = new StringBuilder();
+        appendEnd(end, tiling, transform);
+        write(out, end);
+        out.flush();
+    }
+
+    // Puts the tiles in the order of the bands of their top, in the ascending order within a band
+    private static void sortByBands(TileStore tileStore, int[] tiles, int[] tileBands) {
+        int size = tileStore.size();
+        double[] tops = new double[size];
+        double minTop = Double.POSITIVE_INFINITY;
+        for (int tile = 0; tile < size; tile++) {
+            double top = Double.POSITIVE_INFINITY;
+            for (int v = 0; v < 4; v++) {
+                top = Math.min(top, tileStore.getY(tile, v));
+            }
+            tops[tile] = top;
+            minTop = Math.min(minTop, top);
+        }
+        int[] bands = new int[size];
+        int bandCount = 0;
+        for (int tile = 0; tile < size; tile++) {
+            bands[tile] = (int) ((tops[tile] - minTop) / CHAIN_BAND_HEIGHT);
+            bandCount = Math.max(bandCount, bands[tile] + 1);
+        }
+        // the counting sort keeps the order of the tiles of a band
+        int[] bandStarts = new int[bandCount + 1];
+        for (int band : bands) {
+            bandStarts[band + 1]++;
+        }
+        for (int band = 0; band < bandCount; band++) {
+            bandStarts[band + 1] += bandStarts[band];
+        }
+        for (int tile = 0; tile < size; tile++) {
+            int i = bandStarts[bands[tile]]++;
+            tiles[i] = tile;
+            tileBands[i] = bands[tile];
+        }
+    }
+
+    // The first tile of every chunk and the tile count at the end, a chunk has the tiles of one band
+    private static int[] createChunkStarts(int[] tileBands) {
+        int[] chunkStarts = new int[tileBands.length / CHUNK_SIZE + 2];
+        int chunkCount = 0;
+        for (int i = 0; i < tileBands.length; i++) {
+            if (i == 0 || i - chunkStarts[chunkCount - 1] == CHUNK_SIZE || tileBands[i] != tileBands[i - 1]) {
+                if (chunkCount + 1 == chunkStarts.length) {
+                    chunkStarts = Arrays.copyOf(chunkStarts, 2 * chunkStarts.length);
+                }
+                chunkStarts[chunkCount++] = i;
+            }
+        }
+        chunkStarts[chunkCount] = tileBands.length;
+        return Arrays.copyOf(chunkStarts, chunkCount + 1);
+    }
+
+    private Chunk createChunk(TileStore tileStore, int[] tiles, int[] tileBands, int from, int to,
+                              AffineTransform transform) {
+        StringBuilder text = new StringBuilder();
+        ShapeGraphics.ShapeSink sink = createSink(text);
+        SegmentSink segmentSink = isDeduplicated || isChained ? new SegmentSink(sink, isFillCut()) : null;
+        if (segmentSink != null) {
+            sink = segmentSink;
+        }
+        ShapeGraphics graphics = new ShapeGraphics(sink, transform);
+        for (int i = from; i < to; i++) {
+            painter.paint(graphics, tileStore, tiles[i], isReversed);
+        }
+        sink.flush();
+        return new Chunk(text.toString().getBytes(StandardCharsets.UTF_8),
+                segmentSink != null ? segmentSink.getSegments() : null,
+                from == 0 || tileBands[from - 1] != tileBands[from]);
+    }
+
+    // Writes the text of the chunk and the parts of its segments which are not written yet, or keeps them to be chained
+    private void write(OutputStream out, Chunk chunk, SegmentSet segmentSet, SegmentList chainedSegments) throws IOException {
+        out.write(chunk.text());
+        SegmentList segments = chunk.segments();
+        if (segments == null) {
+            return;
+        }
+        if (segmentSet != null) {
+            segments = segmentSet.add(segments);
+        }
+        if (chainedSegments != null) {
+            // the segments of the previous bands do not touch the next ones, except at the band border
+            if (chunk.isBandStart() && chainedSegments.size() >= CHAIN_SEGMENTS) {
+                writePolylines(out, new SegmentChainer(getQuantum()).chain(chainedSegments));
+                chainedSegments.clear();
+            }
+            chainedSegments.addAll(segments);
+        } else {
+            writePolylines(out, PolylineList.of(segments));
+        }
+    }
+
+    private void writePolylines(OutputStream out, PolylineList polylines) throws IOException {
+        for (int from = 0; from < polylines.size(); from += POLYLINE_BATCH) {
+            StringBuilder text = new StringBuilder();
+            appendPolylines(text, polylines, from, Math.min(polylines.size(), from + POLYLINE_BATCH));
+            write(out, text);
+        }
+    }
+
+    private record Chunk(byte[] text, SegmentList segments, boolean isBandStart) {
+    }
+
+    private static void write(OutputStream out, StringBuilder text) throws IOException {
+        out.write(text.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    // The transform from the tiling coordinates to the coordinates of the file
+    protected abstract AffineTransform createTransform(Tiling tiling);
+
+    protected abstract void appendStart(StringBuilder out, Tiling tiling, AffineTransform transform);
+
+    // The sink of the painted tiles, it appends the shapes to the text of the chunk
+    protected abstract ShapeGraphics.ShapeSink createSink(StringBuilder out);
+
+    protected abstract void appendEnd(StringBuilder out, Tiling tiling, AffineTransform transform);
+
+    // The distance in the file coordinates below which the end points of the segments are the same
+    abstract double getQuantum();
+
+    // Tells if the outlines of the filled shapes are cut, otherwise they are written by the sink as they are
+    abstract boolean isFillCut();
+
+    // Appends the cut polylines from the first to the last exclusive, the segments of a chunk or the chains of the bands
+    abstract void appendPolylines(StringBuilder out, PolylineList polylines, int from, int to);
+
+    // Appends the number rounded to the digits after the point without the trailing zeros
+    static void appendNumber(StringBuilder out, double value, int digits) {
+        long scale = getScale(digits);
+        if (!(Math.abs(value) < (double) Long.MAX_VALUE / scale)) {
+            out.append(value);
+            return;
+        }
+        appendUnits(out, Math.round(value * scale), digits);
+    }
+
+    // Appends the number of the units of 10^-digits like appendNumber
+    static void appendUnits(StringBuilder out, long units, int digits) {
+        long scale = getScale(digits);
+        if (units < 0) {
+            out.append('-');
+            units = -units;
+        }
+        out.append(units / scale);
+        long fraction = units % scale;
+        if (fraction != 0) {
+            out.append('.');
+            for (long digit = scale / 10; fraction != 0; digit /= 10) {
+                out.append((char) ('0' + fraction / digit));
+                fraction %= digit;
+            }
+        }
+    }
+
+    static long getScale(int digits) {
+        long scale = 1;
+        for (int i = 0; i < digits; i++) {
+            scale *= 10;
+        }
+        return scale;
+    }
+}
@@ -0,0 +1,116 @@
+package tilings.multigrid;
+
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * Runs the loops of a Multigrid build over fixed size chunks, on the calling thread or on a fork-join pool.
+ * The chunk boundaries do not depend on the parallelism, so a build gives the same result for any thread count.
+ * <p>
+ * The pools are shared by the builds and the exports and live as long as the program, a build of the common pool
+ * parallelism runs on the common pool. Their threads are daemons and stop when they are idle.
+ * <p>
+ * Every chunk checks the monitor first, a cancelled build throws CancellationException.
+ */
+public class BuildExecutor {
+    static final int CHUNK_SIZE = 1024;
+    // the shared pools by their parallelism
+    private static final Map<Integer, ForkJoinPool> POOL_MAP = new ConcurrentHashMap<>();
+
+    private final ForkJoinPool pool;
+    private final BuildMonitor monitor;
+
+    BuildExecutor(int parallelism) {
+        this(parallelism, BuildMonitor.NONE);
+    }
+
+    BuildExecutor(int parallelism, BuildMonitor monitor) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+        }
+        pool = parallelism > 1 ? getPool(parallelism) : null;
+        this.monitor = monitor;
+    }
+
+    // The shared pool of the parallelism
+    public static ForkJoinPool getPool(int parallelism) {
+        if (parallelism == ForkJoinPool.getCommonPoolParallelism()) {
+            return ForkJoinPool.commonPool();
+        }
+        return POOL_MAP.computeIfAbsent(parallelism, ForkJoinPool::new);
+    }
+
+    // Stops the build if it is cancelled or reports its progress
+    void checkpoint(double progress) {
+        checkCancelled();
+        monitor.setProgress(progress);
+    }
+
+    private void checkCancelled() {
+        if (monitor.isCancelled()) {
+            throw new CancellationException("Build is cancelled");
+        }
+    }
+
+    boolean isParallel() {
+        return pool != null;
+    }
+
+    int getChunkCount(int size) {
+        return (size + CHUNK_SIZE - 1) / CHUNK_SIZE;
+    }
+
+    void forEachChunk(int size, ChunkTask task) {
+        forEachChunk(size, task, -1, -1);
+    }
+
+    // Reports the progress going from fromProgress to toProgress while the chunks are done
+    void forEachChunk(int size, ChunkTask task, double fromProgress, double toProgress) {
+        int chunkCount = getChunkCount(size);
+        AtomicInteger doneCount = new AtomicInteger();
+        ChunkTask reportingTask = fromProgress < 0 ? task : (chunk, from, to) -> {
+            task.run(chunk, from, to);
+            monitor.setProgress(fromProgress + (toProgress - fromProgress) * doneCount.incrementAndGet() / chunkCount);
+        };
+        if (pool == null || chunkCount < 2) {
+            for (int chunk = 0; chunk < chunkCount; chunk++) {
+                runChunk(reportingTask, chunk, size);
+            }
+        } else {
+            pool.submit(() -> IntStream.range(0, chunkCount).parallel()
+                    .forEach(chunk -> runChunk(reportingTask, chunk, size))).join();
+        }
+    }
+
+    // Runs the task for every index from 0 to size, for the loops over a few big items which make the whole build
+    void forEach(int size, IntConsumer task) {
+        AtomicInteger doneCount = new AtomicInteger();
+        IntConsumer checkedTask = i -> {
+            checkCancelled();
+            task.accept(i);
+            monitor.setProgress((double) doneCount.incrementAndGet() / size);
+        };
+        if (pool == null || size < 2) {
+            for (int i = 0; i < size; i++) {
+                checkedTask.accept(i);
+            }
+        } else {
+            pool.submit(() -> IntStream.range(0, size).parallel().forEach(checkedTask)).join();
+        }
+    }
+
+    private void runChunk(ChunkTask task, int chunk, int size) {
+        checkCancelled();
+        int from = chunk * CHUNK_SIZE;
+        task.run(chunk, from, Math.min(size, from + CHUNK_SIZE));
+    }
+
+    interface ChunkTask {
+        void run(int chunk, int from, int to);
+    }
+}
@@ -0,0 +1,23 @@
+package tilings.multigrid;
+
+/**
+ * Watches a long build, the build is stopped with CancellationException soon after the monitor is cancelled.
+ * The methods are called from the build threads.
+ */
+public interface BuildMonitor {
+    BuildMonitor NONE = new BuildMonitor() {
+        @Override
+        public boolean isCancelled() {
+            return false;
+        }
+
+        @Override
+        public void setProgress(double progress) {
+        }
+    };
+
+    boolean isCancelled();
+
+    // The part of the build which is done, from 0 to 1
+    void setProgress(double progress);
+}
@@ -0,0 +1,461 @@
+package tilings.multigrid;
+
+import java.awt.geom.Rectangle2D;
+import java.util.*;
+
+/**
+ * Builds the tiling of the Multigrid with the same parameters by the cut and project method,
+ * no intersections of the grid lines are calculated.
+ * <p>
+ * A point K of the lattice Z^symmetry is a vertex of the tiling if the strips K_l + offset_l <= p * e_l < K_l + offset_l + 1
+ * have a common point p, which is the same as the projection of K to the internal space lying in the projected unit cube.
+ * The common points are the regions between the grid lines, so the accepted points are found by going
+ * from a region to its neighbours across the lines, only the regions in the borders or the grid window are visited.
+ * The rhombus with the grids i < j has the vertices from K to K + e_i + e_j. It is in the tiling
+ * if the next lines of the two grids intersect at a point where the other grids keep the indices K_l.
+ * <p>
+ * The lattice points are split into the slabs of the first grid's index K_0, the slabs are built in parallel
+ * and their tiles follow in the order of the slabs.
+ */
+public class CutAndProject implements Tiling {
+    // the search area is a bit bigger, the tiles themselves are selected exactly like by the multigrid
+    private static final double SEARCH_MARGIN = 1e-9;
+
+    private final int symmetry;
+    private final int gridRadius;
+    private final List<Double> offsetList;
+    private final double gridInset;
+    // the borders of the disk, null for a window
+    private final List<Grid> gridList;
+    // the part of the tiling to generate or null for the whole disk
+    private final Rectangle2D window;
+    private final Rectangle2D gridWindow;
+    private final Cyclotomic cyclotomic;
+
+    private final List<Double> sinTable = new ArrayList<>();
+    private final List<Double> cosTable = new ArrayList<>();
+    // the directions of the lines like in GridLine
+    private final double[] lineSin;
+    private final double[] lineCos;
+
+    private final TileStore tileStore;
+    private final List<Double> tileAreaList;
+    private final Set<List<Integer>> vertexIndexSet;
+    private final double tilingRadius;
+
+    public CutAndProject(int symmetry, int gridRadius, List<Double> offsetList, double gridInset, int parallelism, boolean exact) {
+        this(symmetry, gridRadius, offsetList, gridInset, null, parallelism, exact, BuildMonitor.NONE);
+    }
+
+    // Creates the tiling reporting the progress to the monitor, a cancelled build throws CancellationException
+    public CutAndProject(int symmetry, int gridRadius, List<Double> offsetList, double gridInset, int parallelism, boolean exact,
+                         BuildMonitor monitor) {
+        this(symmetry, gridRadius, offsetList, gridInset, null, parallelism, exact, monitor);
+    }
+
+    // Creates the part of the infinite tiling which covers the window like Multigrid does
+    public CutAndProject(int symmetry, List<Double> offsetList, Rectangle2D window, int parallelism, boolean exact) {
+        this(symmetry, offsetList, window, parallelism, exact, BuildMonitor.NONE);
+    }
+
+    public CutAndProject(int symmetry, List<Double> offsetList, Rectangle2D window, int parallelism, boolean exact,
+                         BuildMonitor monitor) {
+        this(symmetry, 0, offsetList, 0, window.getBounds2D(), parallelism, exact, monitor);
+    }
+
+    private CutAndProject(int symmetry, int gridRadius, List<Double> offsetList, double gridInset, Rectangle2D window,
+                          int parallelism, boolean exact, BuildMonitor monitor) {
+        this.symmetry = symmetry;
+        this.gridRadius = gridRadius;
+        this.offsetList = Collections.unmodifiableList(offsetList);
+        this.gridInset = gridInset;
+        this.window = window;
+        gridWindow = window == null ? null : Multigrid.getGridWindow(symmetry, offsetList, window);
+        cyclotomic = exact ? new Cyclotomic(symmetry) : null;
+
+        double multiplier = 2 * Math.PI / symmetry;
+        lineSin = new double[symmetry];
+        lineCos = new double[symmetry];
+        gridList = window == null ? new ArrayList<>() : null;
+        for (int i = 0; i < symmetry; i++) {
+            double angle = 2 * i * Math.PI / symmetry;
+            lineSin[i] = Math.sin(angle);
+            lineCos[i] = Math.cos(angle);
+            sinTable.add(Math.sin(i * multiplier));
+            cosTable.add(Math.cos(i * multiplier));
+            if (gridList != null) {
+                gridList.add(new Grid(angle, offsetList.get(i), gridRadius, gridInset));
+            }
+        }
+
+        Polygon searchArea = createSearchArea();
+        double offset = offsetList.getFirst();
+        int minSlab = (int) Math.floor(searchArea.getMin(lineCos[0], lineSin[0]) - offset);
+        int maxSlab = (int) Math.floor(searchArea.getMax(lineCos[0], lineSin[0]) - offset);
+        int slabCount = Math.max(0, maxSlab - minSlab + 1);
+        TileStore[] slabStores = new TileStore[slabCount];
+        BuildExecutor executor = new BuildExecutor(parallelism, monitor);
+        executor.forEach(slabCount, slab -> slabStores[slab] = calculateSlab(minSlab + slab, searchArea));
+
+        int keyLength = cyclotomic == null ? 0 : cyclotomic.getDegree();
+        tileStore = new TileStore(0, keyLength, symmetry);
+        for (TileStore slabStore : slabStores) {
+            tileStore.addAll(slabStore);
+        }
+        tileStore.finish();
+        vertexIndexSet = tileStore.createVertexIndexSet();
+        tilingRadius = tileStore.getTilingRadius();
+        tileAreaList = tileStore.createAreaList();
+    }
+
+    // The area of the intersections inside the borders or the grid window
+    private Polygon createSearchArea() {
+        Polygon area = new Polygon(symmetry);
+        if (gridWindow != null) {
+            area.setRectangle(gridWindow.getMinX() - SEARCH_MARGIN, gridWindow.getMinY() - SEARCH_MARGIN,
+                    gridWindow.getMaxX() + SEARCH_MARGIN, gridWindow.getMaxY() + SEARCH_MARGIN);
+            return area;
+        }
+        // the point inside all borders is not farther than twice the distance to the borders
+        double maxOffset = 0;
+        for (double offset : offsetList) {
+            maxOffset = Math.max(maxOffset, Math.abs(offset));
+        }
+        double size = 2 * (gridRadius + 1 + maxOffset) + 1;
+        area.setRectangle(-size, -size, size, size);
+        for (int l = 0; l < symmetry; l++) {
+            double offset = offsetList.get(l);
+            area.clip(lineCos[l], lineSin[l], offset - gridRadius - (1 - gridInset) - SEARCH_MARGIN,
+                    offset + gridRadius + (1 - gridInset) + SEARCH_MARGIN);
+        }
+        return area;
+    }
+
+    // Visits the regions with K_0 = slab and adds the tiles which have K in them
+    private TileStore calculateSlab(int slab, Polygon searchArea) {
+        int keyLength = cyclotomic == null ? 0 : cyclotomic.getDegree();
+        TileStore store = new TileStore(0, keyLength, symmetry);
+        Polygon slabArea = new Polygon(symmetry);
+        slabArea.set(searchArea);
+        double offset = offsetList.getFirst();
+        if (!slabArea.clip(lineCos[0], lineSin[0], offset + slab, offset + slab + 1)) {
+            return store;
+        }
+
+        RhombusBuilder builder = new RhombusBuilder(symmetry, cosTable, sinTable, offsetList, cyclotomic);
+        Polygon region = new Polygon(symmetry);
+        LatticeSet visited = new LatticeSet(symmetry);
+        int[] queue = new int[64];
+        int queueSize = 0;
+        int[] lattice = new int[symmetry];
+        lattice[0] = slab;
+        for (int l = 1; l < symmetry; l++) {
+            lattice[l] = builder.getLatticeIndex(slabArea.getCenterX(), slabArea.getCenterY(), l);
+        }
+        visited.add(lattice);
+        queue[queueSize++] = 0;
+
+        for (int q = 0; q < queueSize; q++) {
+            visited.get(queue[q], lattice);
+            addTiles(lattice, builder, store);
+            for (int l = 1; l < symmetry; l++) {
+                for (int step = -1; step <= 1; step += 2) {
+                    lattice[l] += step;
+                    if (visited.add(lattice) && isRegion(lattice, slabArea, region)) {
+                        if (queueSize == queue.length) {
+                            queue = Arrays.copyOf(queue, queueSize * 2);
+                        }
+                        queue[queueSize++] = visited.size() - 1;
+                    }
+                    lattice[l] -= step;
+                }
+            }
+        }
+        return store;
+    }
+
+    // Tells if the strips of the lattice point have a common point in the slab's part of the search area
+    private boolean isRegion(int[] lattice, Polygon slabArea, Polygon region) {
+        region.set(slabArea);
+        for (int l = 1; l < symmetry; l++) {
+            double offset = offsetList.get(l) + lattice[l];
+            if (!region.clip(lineCos[l], lineSin[l], offset, offset + 1)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void addTiles(int[] lattice, RhombusBuilder builder, TileStore store) {
+        for (int i = 0; i < symmetry; i++) {
+            for (int j = i + 1; j < symmetry; j++) {
+                double determinant = lineCos[i] * lineSin[j] - lineSin[i] * lineCos[j];
+                if (Math.abs(determinant) < 1e-10) {
+                    // parallel grids for an even symmetry
+                    continue;
+                }
+                int lineOne = lattice[i] + 1;
+                int lineTwo = lattice[j] + 1;
+                if (gridList != null && (Math.abs(lineOne) > gridRadius || Math.abs(lineTwo) > gridRadius)) {
+                    continue;
+                }
+                double offsetOne = offsetList.get(i) + lineOne;
+                double offsetTwo = offsetList.get(j) + lineTwo;
+                double y = -(offsetOne * lineCos[j] - offsetTwo * lineCos[i]) / determinant;
+                double x = (offsetOne * lineSin[j] - offsetTwo * lineSin[i]) / determinant;
+                if (isTile(x, y, i, j, lattice, builder)
+                        && builder.build(x, y, i, lineOne, j, lineTwo, determinant) && builder.overlaps(window)) {
+                    builder.addTo(store);
+                }
+            }
+        }
+    }
+
+    // The intersection has the tile of the lattice point if it is inside the borders and no other line goes through it
+    private boolean isTile(double x, double y, int gridOne, int gridTwo, int[] lattice, RhombusBuilder builder) {
+        for (int l = 0; l < symmetry; l++) {
+            if (l == gridOne || l == gridTwo) {
+                continue;
+            }
+            if (builder.getLatticeIndex(x, y, l) != lattice[l]) {
+                return false;
+            }
+            double position = x * cosTable.get(l) + y * sinTable.get(l) - offsetList.get(l);
+            long line = Math.round(position);
+            if (Math.abs(position - line) <= Multigrid.SMALL_EPSILON && (gridList == null || Math.abs(line) <= gridRadius)) {
+                // a singular point of the multigrid
+                return false;
+            }
+        }
+        if (gridWindow != null) {
+            return gridWindow.contains(x, y);
+        }
+        GridPoint point = new GridPoint(x, y);
+        for (Grid grid : gridList) {
+            if (!grid.contains(point)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int getSymmetry() {
+        return symmetry;
+    }
+
+    public int getGridRadius() {
+        return gridRadius;
+    }
+
+    public double getGridInset() {
+        return gridInset;
+    }
+
+    @Override
+    public List<Double> getOffsetList() {
+        return offsetList;
+    }
+
+    // The window of the tiling or null if the whole disk is generated
+    public Rectangle2D getWindow() {
+        return window;
+    }
+
+    @Override
+    public boolean isExact() {
+        return cyclotomic != null;
+    }
+
+    @Override
+    public TileStore getTileStore() {
+        return tileStore;
+    }
+
+    @Override
+    public List<GridTile> getTileList() {
+        return tileStore.asList();
+    }
+
+    @Override
+    public List<Double> getTileAreaList() {
+        return tileAreaList;
+    }
+
+    @Override
+    public Set<List<Integer>> getVertexIndexSet() {
+        return vertexIndexSet;
+    }
+
+    @Override
+    public double getTilingRadius() {
+        return tilingRadius;
+    }
+
+    // A convex polygon clipped by the strips, the arrays are reused
+    private static class Polygon {
+        private double[] x;
+        private double[] y;
+        private double[] nextX;
+        private double[] nextY;
+        private int count;
+
+        Polygon(int symmetry) {
+            // every clipped half-plane adds at most one vertex
+            int capacity = 4 + 4 * symmetry + 4;
+            x = new double[capacity];
+            y = new double[capacity];
+            nextX = new double[capacity];
+            nextY = new double[capacity];
+        }
+
+        void set(Polygon other) {
+            System.arraycopy(other.x, 0, x, 0, other.count);
+            System.arraycopy(other.y, 0, y, 0, other.count);
+            count = other.count;
+        }
+
+        void setRectangle(double minX, double minY, double maxX, double maxY) {
+            x[0] = minX;
+            y[0] = minY;
+            x[1] = maxX;
+            y[1] = minY;
+            x[2] = maxX;
+            y[2] = maxY;
+            x[3] = minX;
+            y[3] = maxY;
+            count = 4;
+        }
+
+        // Keeps the part with min <= p * (cos, sin) <= max, returns false if nothing is left
+        boolean clip(double cos, double sin, double min, double max) {
+            clip(cos, sin, -min);
+            clip(-cos, -sin, max);
+            return count > 2;
+        }
+
+        // Keeps the part with p * (cos, sin) + shift >= 0
+        private void clip(double cos, double sin, double shift) {
+            int nextCount = 0;
+            for (int k = 0; k < count; k++) {
+                int n = k + 1 == count ? 0 : k + 1;
+                double d = x[k] * cos + y[k] * sin + shift;
+                double dn = x[n] * cos + y[n] * sin + shift;
+                if (d >= 0) {
+                    nextX[nextCount] = x[k];
+                    nextY[nextCount] = y[k];
+                    nextCount++;
+                }
+                if (d >= 0 != dn >= 0) {
+                    double t = d / (d - dn);
+                    nextX[nextCount] = x[k] + t * (x[n] - x[k]);
+                    nextY[nextCount] = y[k] + t * (y[n] - y[k]);
+                    nextCount++;
+                }
+            }
+            double[] swap = x;
+            x = nextX;
+            nextX = swap;
+            swap = y;
+            y = nextY;
+            nextY = swap;
+            count = nextCount;
+        }
+
+        double getMin(double cos, double sin) {
+            double min = Double.MAX_VALUE;
+            for (int k = 0; k < count; k++) {
+                min = Math.min(min, x[k] * cos + y[k] * sin);
+            }
+            return min;
+        }
+
+        double getMax(double cos, double sin) {
+            double max = -Double.MAX_VALUE;
+            for (int k = 0; k < count; k++) {
+                max = Math.max(max, x[k] * cos + y[k] * sin);
+            }
+            return max;
+        }
+
+        double getCenterX() {
+            double sum = 0;
+            for (int k = 0; k < count; k++) {
+                sum += x[k];
+            }
+            return sum / count;
+        }
+
+        double getCenterY() {
+            double sum = 0;
+            for (int k = 0; k < count; k++) {
+                sum += y[k];
+            }
+            return sum / count;
+        }
+    }
+
+    // The visited lattice points in the order they are added, found with an open addressing hash table
+    private static class LatticeSet {
+        private final int length;
+        private int[] points;
+        private int[] slots;
+        private int size;
+
+        LatticeSet(int length) {
+            this.length = length;
+            points = new int[64 * length];
+            slots = new int[128];
+            Arrays.fill(slots, -1);
+        }
+
+        int size() {
+            return size;
+        }
+
+        void get(int index, int[] point) {
+            System.arraycopy(points, index * length, point, 0, length);
+        }
+
+        // Returns false if the point is already in the set
+        boolean add(int[] point) {
+            int slot = hash(point, 0) & (slots.length - 1);
+            while (slots[slot] != -1) {
+                if (Arrays.equals(points, slots[slot] * length, (slots[slot] + 1) * length, point, 0, length)) {
+                    return false;
+                }
+                slot = (slot + 1) & (slots.length - 1);
+            }
+            if ((size + 1) * length > points.length) {
+                points = Arrays.copyOf(points, points.length * 2);
+            }
+            System.arraycopy(point, 0, points, size * length, length);
+            slots[slot] = size++;
+            if (size * 2 > slots.length) {
+                rehash();
+            }
+            return true;
+        }
+
+        private void rehash() {
+            slots = new int[slots.length * 2];
+            Arrays.fill(slots, -1);
+            for (int index = 0; index < size; index++) {
+                int slot = hash(points, index * length) & (slots.length - 1);
+                while (slots[slot] != -1) {
+                    slot = (slot + 1) & (slots.length - 1);
+                }
+                slots[slot] = index;
+            }
+        }
+
+        private int hash(int[] array, int offset) {
+            long key = 0;
+            for (int k = offset; k < offset + length; k++) {
+                key = key * 0x9E3779B97F4A7C15L + array[k];
+            }
+            key ^= key >>> 29;
+            return (int) (key ^ (key >>> 32));
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package tilings.multigrid;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Exact coordinates of the points sum(k_i * e_i) where e_i are the unit vectors at the angles 2 * PI * i / symmetry.
+ * The vectors are the powers of the root of unity, so the point is the polynomial sum(k_i * x^i)
+ * reduced modulo the cyclotomic polynomial. The coefficients of the remainder identify the point exactly.
+ */
+public class Cyclotomic {
+    private final int symmetry;
+    // the coefficients of the cyclotomic polynomial from x^0, the last one is 1
+    private final int[] polynomial;
+    private final double[] cosTable;
+    private final double[] sinTable;
+
+    public Cyclotomic(int symmetry) {
+        if (symmetry < 1) {
+            throw new IllegalArgumentException("Symmetry must be positive: " + symmetry);
+        }
+        this.symmetry = symmetry;
+        polynomial = getCyclotomicPolynomial(symmetry);
+        int degree = polynomial.length - 1;
+        cosTable = new double[degree];
+        sinTable = new double[degree];
+        for (int i = 0; i < degree; i++) {
+            cosTable[i] = Math.cos(2 * i * Math.PI / symmetry);
+            sinTable[i] = Math.sin(2 * i * Math.PI / symmetry);
+        }
+    }
+
+    public int getSymmetry() {
+        return symmetry;
+    }
+
+    // The length of the exact key, Euler's totient of the symmetry
+    public int getDegree() {
+        return polynomial.length - 1;
+    }
+
+    /**
+     * Reduces the polynomial with the symmetry coefficients in place, the key is left in the first getDegree() entries.
+     */
+    public void reduce(int[] coefficients) {
+        int degree = getDegree();
+        for (int i = symmetry - 1; i >= degree; i--) {
+            int c = coefficients[i];
+            if (c != 0) {
+                for (int j = 0; j <= degree; j++) {
+                    coefficients[i - degree + j] -= c * polynomial[j];
+                }
+            }
+        }
+    }
+
+    public double getX(int[] key, int offset) {
+        double x = 0;
+        for (int i = 0; i < getDegree(); i++) {
+            x += key[offset + i] * cosTable[i];
+        }
+        return x;
+    }
+
+    public double getY(int[] key, int offset) {
+        double y = 0;
+        for (int i = 0; i < getDegree(); i++) {
+            y += key[offset + i] * sinTable[i];
+        }
+        return y;
+    }
+
+    // x^n - 1 is the product of the cyclotomic polynomials of all divisors of n
+    private static int[] getCyclotomicPolynomial(int n) {
+        List<Integer> dividend = new ArrayList<>();
+        dividend.add(-1);
+        for (int i = 1; i < n; i++) {
+            dividend.add(0);
+        }
+        dividend.add(1);
+        for (int d = 1; d < n; d++) {
+            if (n % d == 0) {
+                dividend = divide(dividend, getCyclotomicPolynomial(d));
+            }
+        }
+        int[] result = new int[dividend.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = dividend.get(i);
+        }
+        return result;
+    }
+
+    // Divides by a monic polynomial which divides the dividend exactly
+    private static List<Integer> divide(List<Integer> dividend, int[] divisor) {
+        int divisorDegree = divisor.length - 1;
+        int[] remainder = new int[dividend.size()];
+        for (int i = 0; i < remainder.length; i++) {
+            remainder[i] = dividend.get(i);
+        }
+        List<Integer> quotient = new ArrayList<>();
+        for (int i = remainder.length - 1; i >= divisorDegree; i--) {
+            int c = remainder[i];
+            quotient.addFirst(c);
+            for (int j = 0; j <= divisorDegree; j++) {
+                remainder[i - divisorDegree + j] -= c * divisor[j];
+            }
+        }
+        for (int r : remainder) {
+            if (r != 0) {
+                throw new RuntimeException("Polynomial is not divisible");
+            }
+        }
+        return quotient;
+    }
+}
@@ -8,17 +8,36 @@ public class Grid {
     private final double angle;
     private final double offset;
     private final int radius;
+    private final int minIndex;
     private final List<GridLine> lineList = new ArrayList<>();
     private final GridLine leftBorder;
     private final GridLine rightBorder;
 
     public Grid(double angle, double offset, int gridRadius, double inset) {
+        this(angle, offset, -gridRadius, gridRadius, inset, Collections.emptyList(), 0);
+    }
+
+    // The grid with the lines from minIndex to maxIndex, used to cover a window of the tiling
+    Grid(double angle, double offset, int minIndex, int maxIndex) {
+        this(angle, offset, minIndex, maxIndex, 0, Collections.emptyList(), 0);
+    }
+
+    // The lines of the previous grid are reused, so the intersections of a derived multigrid can be matched by the line
+    private Grid(double angle, double offset, int minIndex, int maxIndex, double inset,
+                 List<GridLine> previousLineList, int previousMinIndex) {
+        if (minIndex > maxIndex) {
+            throw new RuntimeException("Grid has no lines: " + minIndex + ".." + maxIndex);
+        }
         this.angle = angle;
         this.offset = offset;
-        this.radius = gridRadius;
+        this.radius = Math.max(-minIndex, maxIndex);
+        this.minIndex = minIndex;
 
-        for (int j = -gridRadius; j <= gridRadius; j++) {
-            GridLine line = new GridLine(angle, offset + j);
+        for (int j = minIndex; j <= maxIndex; j++) {
+            int previousIndex = j - previousMinIndex;
+            GridLine line = previousIndex >= 0 && previousIndex < previousLineList.size()
+                    ? previousLineList.get(previousIndex)
+                    : new GridLine(angle, offset + j);
             lineList.add(line);
         }
 
@@ -26,6 +45,14 @@ public class Grid {
         rightBorder = new GridLine(angle, lineList.getLast().getOffset() + (1 - inset));
     }
 
+    Grid derive(int gridRadius, double inset) {
+        return new Grid(angle, offset, -gridRadius, gridRadius, inset, lineList, minIndex);
+    }
+
+    Grid derive(int minIndex, int maxIndex) {
+        return new Grid(angle, offset, minIndex, maxIndex, 0, lineList, this.minIndex);
+    }
+
     public boolean contains(GridPoint point) {
         double v = point.x() * leftBorder.angleCos + point.y() * leftBorder.angleSin;
         double minD = Math.min(leftBorder.getOffset(), rightBorder.getOffset());
@@ -45,6 +72,11 @@ public class Grid {
         return radius;
     }
 
+    // The number of the first line, the line with the number j has the offset getOffset() + j
+    public int getMinIndex() {
+        return minIndex;
+    }
+
     public List<GridLine> getLineList() {
         return Collections.unmodifiableList(lineList);
     }
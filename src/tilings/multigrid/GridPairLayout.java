@@ -0,0 +1,119 @@
+package tilings.multigrid;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Numbers the intersections of the lines of all grid pairs.
+ * Lines of the same grid are parallel, so only the lines of two different grids can intersect.
+ * A row is a line of one grid with the lines of all the next grids, the rows follow the order of the multigrid's line list.
+ * The pair offset is the position of the next grid's lines in a row, -1 for parallel grids.
+ */
+class GridPairLayout {
+    private final int[] lineCounts;
+    private final int[] lineStarts;
+    private final int[][] pairOffsets;
+    private final double[][] determinants;
+    private final int[] rowLengths;
+    private final int[] gridStarts;
+
+    GridPairLayout(List<Grid> gridList) {
+        int gridCount = gridList.size();
+        lineCounts = new int[gridCount];
+        lineStarts = new int[gridCount + 1];
+        for (int i = 0; i < gridCount; i++) {
+            lineCounts[i] = gridList.get(i).getLineList().size();
+            lineStarts[i + 1] = lineStarts[i] + lineCounts[i];
+        }
+        pairOffsets = new int[gridCount][gridCount];
+        determinants = new double[gridCount][gridCount];
+        rowLengths = new int[gridCount];
+        gridStarts = new int[gridCount + 1];
+        for (int i = 0; i < gridCount; i++) {
+            GridLine firstOne = gridList.get(i).getLineList().getFirst();
+            Arrays.fill(pairOffsets[i], -1);
+            for (int j = i + 1; j < gridCount; j++) {
+                GridLine firstTwo = gridList.get(j).getLineList().getFirst();
+                if (firstOne.getAngle() == firstTwo.getAngle()) {
+                    continue;
+                }
+                double determinant = firstOne.angleCos * firstTwo.angleSin - firstOne.angleSin * firstTwo.angleCos;
+                if (Math.abs(determinant) < 1e-10) {
+                    // parallel grids for an even symmetry
+                    continue;
+                }
+                determinants[i][j] = determinant;
+                pairOffsets[i][j] = rowLengths[i];
+                rowLengths[i] += lineCounts[j];
+            }
+            gridStarts[i + 1] = gridStarts[i] + rowLengths[i] * lineCounts[i];
+        }
+    }
+
+    int getLineCount(int grid) {
+        return lineCounts[grid];
+    }
+
+    // The lines of all grids are numbered in the order of the multigrid's line list
+    int getLineCount() {
+        return lineStarts[lineStarts.length - 1];
+    }
+
+    int getLineStart(int grid) {
+        return lineStarts[grid];
+    }
+
+    int getPointCount() {
+        return gridStarts[gridStarts.length - 1];
+    }
+
+    boolean isParallel(int gridOne, int gridTwo) {
+        return pairOffsets[gridOne][gridTwo] == -1;
+    }
+
+    double getDeterminant(int gridOne, int gridTwo) {
+        return determinants[gridOne][gridTwo];
+    }
+
+    // The intersection of the line of the first grid with the line of the second, later grid
+    int getPoint(int gridOne, int lineOne, int gridTwo, int lineTwo) {
+        return gridStarts[gridOne] + lineOne * rowLengths[gridOne] + pairOffsets[gridOne][gridTwo] + lineTwo;
+    }
+
+    int getRowStart(int grid, int line) {
+        return gridStarts[grid] + line * rowLengths[grid];
+    }
+
+    int getRowEnd(int grid, int line) {
+        return gridStarts[grid] + (line + 1) * rowLengths[grid];
+    }
+
+    int getRowGrid(int point) {
+        int i = 0;
+        while (point >= gridStarts[i + 1]) {
+            i++;
+        }
+        return i;
+    }
+
+    int getRowLine(int point) {
+        int i = getRowGrid(point);
+        return (point - gridStarts[i]) / rowLengths[i];
+    }
+
+    int getColumnGrid(int point) {
+        int i = getRowGrid(point);
+        int column = (point - gridStarts[i]) % rowLengths[i];
+        int j = i + 1;
+        while (pairOffsets[i][j] == -1 || column >= pairOffsets[i][j] + lineCounts[j]) {
+            j++;
+        }
+        return j;
+    }
+
+    int getColumnLine(int point) {
+        int i = getRowGrid(point);
+        int column = (point - gridStarts[i]) % rowLengths[i];
+        return column - pairOffsets[i][getColumnGrid(point)];
+    }
+}
@@ -3,64 +3,107 @@ package tilings.multigrid;
 import java.util.*;
 
 public class GridTile {
-    private final List<GridPoint> vertexList;
-    private final double area;
-    private final Map<GridPoint, Integer> vertexIndexMap = new HashMap<>();
+    private final TileStore tileStore;
+    private final int tile;
+    private List<GridPoint> vertexList;
 
     public GridTile(List<GridPoint> vertexList, List<Integer> indexList) {
-        if (indexList.size() != vertexList.size()) {
-            throw new RuntimeException("Index count does not match");
-        }
-        this.vertexList = vertexList;
+        tileStore = new TileStore(1);
+        tile = tileStore.add(vertexList, indexList);
+        tileStore.finish();
+    }
 
-        for (int i = 0; i < vertexList.size(); i++) {
-            GridPoint gridPoint = vertexList.get(i);
-            vertexIndexMap.put(gridPoint, indexList.get(i));
-        }
+    GridTile(TileStore tileStore, int tile) {
+        this.tileStore = tileStore;
+        this.tile = tile;
+    }
+
+    // 0.587785 0.951057
+    public double getArea() {
+        return tileStore.getArea(tile);
+    }
+
+    // The acute angle of the rhombus in the steps of PI / symmetry, -1 if it is not known
+    public int getAngle() {
+        return tileStore.getAngle(tile);
+    }
 
-        GridPoint p1 = vertexList.get(0);
-        GridPoint p2 = vertexList.get(1);
-        GridPoint p3 = vertexList.get(2);
-        GridPoint p4 = vertexList.get(3);
-
-        double d1 = p1.getDistance(p3);
-        double d2 = p2.getDistance(p4);
-        area = Multigrid.roundWithBigEpsilon(.5 * d1 * d2);
-        List<Integer> noDuplicates = new ArrayList<>();
-        for (Integer index : indexList) {
-            int i = noDuplicates.indexOf(index);
-            if (i == -1) {
-                noDuplicates.add(index);
-            } else {
-                noDuplicates.remove(i);
+    public List<GridPoint> getVertexList() {
+        if (vertexList == null) {
+            GridPoint[] points = new GridPoint[TileStore.VERTEX_COUNT];
+            for (int v = 0; v < points.length; v++) {
+                points[v] = tileStore.getPoint(tile, v);
             }
+            vertexList = List.of(points);
         }
+        return vertexList;
+    }
 
-        if (noDuplicates.size() != 2) {
-            throw new RuntimeException("Expected two unique indexes");
+    public int getVertexIndex(GridPoint point) {
+        for (int v = 0; v < TileStore.VERTEX_COUNT; v++) {
+            if (Double.compare(tileStore.getX(tile, v), point.x()) == 0
+                    && Double.compare(tileStore.getY(tile, v), point.y()) == 0) {
+                return tileStore.getVertexIndex(tile, v);
+            }
         }
+        throw new RuntimeException("Point is not a vertex of the tile: " + point);
+    }
+
+    // The index of the vertex at the position in the vertex list
+    public int getVertexIndex(int vertex) {
+        return tileStore.getVertexIndex(tile, vertex);
+    }
 
-        int min = Collections.min(noDuplicates);
-        int max = Collections.max(noDuplicates);
+    public int getVertexId(int vertex) {
+        return tileStore.getVertexId(tile, vertex);
+    }
 
-        GridPoint maxIndexVertex = vertexList.get(indexList.indexOf(max));
+    // The component of the vertex's lattice vector, the tile store must have the lattice
+    public int getLattice(int vertex, int component) {
+        return tileStore.getLattice(tile, vertex, component);
+    }
 
-        while (maxIndexVertex != vertexList.getFirst()) {
-            vertexList.add(vertexList.removeFirst());
-        }
+    public int getGridOne() {
+        return tileStore.getGridOne(tile);
     }
 
-    // 0.587785 0.951057
-    public double getArea() {
-        return area;
+    public int getGridTwo() {
+        return tileStore.getGridTwo(tile);
     }
 
-    public List<GridPoint> getVertexList() {
-        return vertexList;
+    public int getIndexSum() {
+        return tileStore.getIndexSum(tile);
     }
 
-    public int getVertexIndex(GridPoint point) {
-        return vertexIndexMap.get(point);
+    public TileStore getTileStore() {
+        return tileStore;
+    }
+
+    public int getTileIndex() {
+        return tile;
+    }
+
+    // The tiles with the lattice are equal if they have the same lattice vector K and grids
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof GridTile other)) {
+            return false;
+        }
+        if (tileStore.hasLattice() && other.tileStore.hasLattice()) {
+            return tileStore.isSameTile(tile, other.tileStore, other.tile);
+        }
+        return tileStore == other.tileStore && tile == other.tile;
+    }
+
+    @Override
+    public int hashCode() {
+        if (tileStore.hasLattice()) {
+            return tileStore.getTileHash(tile);
+        }
+        return System.identityHashCode(tileStore) * 31 + tile;
     }
 }
 
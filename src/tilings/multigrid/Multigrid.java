@@ -1,34 +1,82 @@
 package tilings.multigrid;
 
+import java.awt.geom.Rectangle2D;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntUnaryOperator;
+
+public final class Multigrid implements Tiling {
+    private static final int NO_TILE = -1;
+    private static final int HANGING_TILE = -2;
 
-public class Multigrid {
     private final int symmetry;
     private final int gridRadius;
     private final List<Grid> gridList = new ArrayList<>();
     private final List<Double> offsetList;
 
     private final List<GridLine> lineList = new ArrayList<>();
-    private final HashMap<GridPoint, Set<GridLine>> intersectionMap = new HashMap<>();
-    private final HashMap<GridLine, List<GridPoint>> lineMap = new HashMap<>();
+    private Map<GridPoint, Set<GridLine>> intersectionMap;
+    private final Map<GridLine, List<GridPoint>> lineMap;
+    // the intersections in the order of their lines, the tiles follow this order
+    private List<GridPoint> intersectionList;
+    private List<Set<GridLine>> intersectionLineSetList;
+    // the number of the pair of lines which gives the intersection, see GridPairLayout
+    private int[] intersectionPoints;
+    // the intersections of every line of lineList in the order along the line
+    private int[][] lineIntersectionOrder;
+    // the tile of every intersection, NO_TILE for a singular point or HANGING_TILE when it is outside the borders or the window
+    private int[] intersectionTiles;
 
     private final List<Double> sinTable = new ArrayList<>();
     private final List<Double> cosTable = new ArrayList<>();
 
-    private Map<GridPoint, List<GridPoint>> dualMap = new HashMap<>();
+    // the dual vertices of every intersection inside the borders, calculated on request
+    private Map<GridPoint, List<GridPoint>> dualMap;
 
-    private List<GridTile> tileList;
+    private TileStore tileStore;
+    private TileAdjacency tileAdjacency;
     private List<Double> tileAreaList;
     private Set<List<Integer>> vertexIndexSet;
 
     private double tilingRadius;
     private double gridInset;
+    private final int parallelism;
+    // the exact vertex keys or null if the vertices are rounded doubles
+    private final Cyclotomic cyclotomic;
+
+    // the part of the tiling to generate or null for the whole disk,
+    // the grid window is the area of the intersections whose tiles can get into it
+    private final Rectangle2D window;
+    private final Rectangle2D gridWindow;
 
     public Multigrid(int symmetry, int gridRadius, List<Double> offsetList, double gridInset) {
+        this(symmetry, gridRadius, offsetList, gridInset, 1);
+    }
+
+    public Multigrid(int symmetry, int gridRadius, List<Double> offsetList, double gridInset, int parallelism) {
+        this(symmetry, gridRadius, offsetList, gridInset, parallelism, false);
+    }
+
+    /**
+     * Creates the multigrid, an exact one identifies the tile vertices by their Cyclotomic keys
+     * instead of the coordinates rounded with SMALL_EPSILON.
+     */
+    public Multigrid(int symmetry, int gridRadius, List<Double> offsetList, double gridInset, int parallelism, boolean exact) {
+        this(symmetry, gridRadius, offsetList, gridInset, parallelism, exact, BuildMonitor.NONE);
+    }
+
+    // Creates the multigrid reporting the progress to the monitor, a cancelled build throws CancellationException
+    public Multigrid(int symmetry, int gridRadius, List<Double> offsetList, double gridInset, int parallelism, boolean exact,
+                     BuildMonitor monitor) {
         this.gridRadius = gridRadius;
         this.symmetry = symmetry;
         this.offsetList = Collections.unmodifiableList(offsetList);
         this.gridInset = gridInset;
+        this.parallelism = parallelism;
+        cyclotomic = exact ? new Cyclotomic(symmetry) : null;
+        window = null;
+        gridWindow = null;
+        lineMap = new HashMap<>();
 
         double multiplier = 2 * Math.PI / symmetry;
         for (int i = 0; i < symmetry; i++) {
@@ -40,165 +88,538 @@ public class Multigrid {
             sinTable.add(Math.sin(i * multiplier));
             cosTable.add(Math.cos(i * multiplier));
         }
-        calculateIntersections();
+        BuildExecutor executor = new BuildExecutor(parallelism, monitor);
+        calculateIntersections(executor, null);
+        calculateTiles(executor, null, null);
     }
 
-    public List<Double> getOffsetList() {
-        return offsetList;
+    /**
+     * Creates the part of the infinite tiling which covers the window,
+     * only the lines and intersections needed for the tiles overlapping the window are calculated.
+     */
+    public Multigrid(int symmetry, List<Double> offsetList, Rectangle2D window, int parallelism) {
+        this(symmetry, offsetList, window, parallelism, false);
     }
 
-    private void calculateIntersections() {
-        Map<GridPoint, GridPoint> epsilonIntersectionMap = new HashMap<>();
-
-        for (int i = 0; i < lineList.size(); i++) {
-            GridLine lineOne = lineList.get(i);
-            for (int j = i + 1; j < lineList.size(); j++) {
-                GridLine lineTwo = lineList.get(j);
-                GridPoint point = lineOne.getIntersectionPoint(lineTwo);
-                Set<GridLine> lineSet;
-                if (point != null) {
-                    GridPoint roundedPoint = new GridPoint(roundWithSmallEpsilon(point.x()), roundWithSmallEpsilon(point.y()));
-                    GridPoint existingPoint = epsilonIntersectionMap.get(roundedPoint);
-                    if (existingPoint != null) {
-                        lineSet = intersectionMap.get(existingPoint);
-                        point = existingPoint;
-                    } else {
-                        epsilonIntersectionMap.put(roundedPoint, point);
-                        lineSet = intersectionMap.get(point);
-                        if (lineSet == null) {
-                            lineSet = new HashSet<>();
-                            intersectionMap.put(point, lineSet);
-                        }
-                    }
+    public Multigrid(int symmetry, List<Double> offsetList, Rectangle2D window, int parallelism, boolean exact) {
+        this(symmetry, offsetList, window, parallelism, exact, BuildMonitor.NONE);
+    }
 
-                    lineSet.add(lineOne);
-                    lineSet.add(lineTwo);
+    // Creates the part of the tiling reporting the progress to the monitor, a cancelled build throws CancellationException
+    public Multigrid(int symmetry, List<Double> offsetList, Rectangle2D window, int parallelism, boolean exact,
+                     BuildMonitor monitor) {
+        this.symmetry = symmetry;
+        this.offsetList = Collections.unmodifiableList(offsetList);
+        this.gridInset = 0;
+        this.parallelism = parallelism;
+        cyclotomic = exact ? new Cyclotomic(symmetry) : null;
+        this.window = window.getBounds2D();
+        lineMap = new HashMap<>();
 
-                    if (lineMap.get(lineOne) == null) {
-                        lineMap.put(lineOne, new ArrayList<>());
-                    }
+        double multiplier = 2 * Math.PI / symmetry;
+        for (int i = 0; i < symmetry; i++) {
+            sinTable.add(Math.sin(i * multiplier));
+            cosTable.add(Math.cos(i * multiplier));
+        }
+        gridWindow = getGridWindow(symmetry, offsetList, this.window);
+        int maxRadius = 0;
+        for (int i = 0; i < symmetry; i++) {
+            double angle = 2 * i * Math.PI / symmetry;
+            Grid grid = new Grid(angle, offsetList.get(i), getMinLineIndex(i), getMaxLineIndex(i));
+            gridList.add(grid);
+            lineList.addAll(grid.getLineList());
+            maxRadius = Math.max(maxRadius, grid.getRadius());
+        }
+        gridRadius = maxRadius;
+        BuildExecutor executor = new BuildExecutor(parallelism, monitor);
+        calculateIntersections(executor, null);
+        calculateTiles(executor, null, null);
+    }
 
-                    if (lineMap.get(lineTwo) == null) {
-                        lineMap.put(lineTwo, new ArrayList<>());
-                    }
+    // Derives a multigrid with another radius, inset or window, the intersections and tiles of the previous one are reused
+    private Multigrid(Multigrid previous, int gridRadius, double gridInset, Rectangle2D window, BuildMonitor monitor) {
+        this.symmetry = previous.symmetry;
+        this.offsetList = previous.offsetList;
+        this.gridInset = gridInset;
+        this.parallelism = previous.parallelism;
+        this.cyclotomic = previous.cyclotomic;
+        this.window = window;
+        sinTable.addAll(previous.sinTable);
+        cosTable.addAll(previous.cosTable);
+
+        gridWindow = window == null ? null : getGridWindow(symmetry, offsetList, window);
+        int maxRadius = 0;
+        for (int i = 0; i < symmetry; i++) {
+            Grid grid = previous.gridList.get(i);
+            Grid derivedGrid = window == null
+                    ? grid.derive(gridRadius, gridInset)
+                    : grid.derive(getMinLineIndex(i), getMaxLineIndex(i));
+            gridList.add(derivedGrid);
+            lineList.addAll(derivedGrid.getLineList());
+            maxRadius = Math.max(maxRadius, derivedGrid.getRadius());
+        }
+        this.gridRadius = maxRadius;
+        BuildExecutor executor = new BuildExecutor(parallelism, monitor);
+        if (window == null && previous.window == null && gridRadius == previous.gridRadius) {
+            // the inset moves only the borders, the lines are the same
+            intersectionMap = previous.intersectionMap;
+            lineMap = previous.lineMap;
+            intersectionList = previous.intersectionList;
+            intersectionLineSetList = previous.intersectionLineSetList;
+            intersectionPoints = previous.intersectionPoints;
+            lineIntersectionOrder = previous.lineIntersectionOrder;
+            calculateTiles(executor, previous, n -> n);
+        } else {
+            lineMap = new HashMap<>();
+            int[] previousIntersections = calculateIntersections(executor, previous);
+            calculateTiles(executor, previous, n -> previousIntersections[n]);
+        }
+    }
 
-                    if (!lineMap.get(lineOne).contains(point)) {
-                        lineMap.get(lineOne).add(point);
+    // A dual vertex is (symmetry / 2) * p - sum((offset_i + f_i) * e_i) for the intersection p and 0 <= f_i < 1,
+    // the length of sum(f_i * e_i) is at most symmetry / 2. A tile which overlaps the window
+    // has the vertices not farther than 2 from it.
+    static Rectangle2D getGridWindow(int symmetry, List<Double> offsetList, Rectangle2D window) {
+        double multiplier = 2 * Math.PI / symmetry;
+        double offsetX = 0, offsetY = 0;
+        for (int i = 0; i < symmetry; i++) {
+            offsetX += offsetList.get(i) * Math.cos(i * multiplier);
+            offsetY += offsetList.get(i) * Math.sin(i * multiplier);
+        }
+        double scale = 2.0 / symmetry;
+        double margin = 1 + BIG_EPSILON;
+        double minX = scale * (window.getMinX() - 2 + offsetX) - margin;
+        double minY = scale * (window.getMinY() - 2 + offsetY) - margin;
+        double maxX = scale * (window.getMaxX() + 2 + offsetX) + margin;
+        double maxY = scale * (window.getMaxY() + 2 + offsetY) + margin;
+        return new Rectangle2D.Double(minX, minY, maxX - minX, maxY - minY);
+    }
+
+    // The first line of the grid which crosses the grid window
+    private int getMinLineIndex(int grid) {
+        return (int) Math.ceil(getGridWindowProjection(grid, false) - offsetList.get(grid));
+    }
+
+    private int getMaxLineIndex(int grid) {
+        return (int) Math.floor(getGridWindowProjection(grid, true) - offsetList.get(grid));
+    }
+
+    private double getGridWindowProjection(int grid, boolean isMax) {
+        double cos = cosTable.get(grid);
+        double sin = sinTable.get(grid);
+        double x = (cos >= 0) == isMax ? gridWindow.getMaxX() : gridWindow.getMinX();
+        double y = (sin >= 0) == isMax ? gridWindow.getMaxY() : gridWindow.getMinY();
+        return x * cos + y * sin;
+    }
+
+    /**
+     * Returns the multigrid with the given inset, only the tiles of the intersections
+     * which were outside of the previous borders are calculated.
+     */
+    public Multigrid withInset(double gridInset) {
+        return derive(gridRadius, gridInset, BuildMonitor.NONE);
+    }
+
+    /**
+     * Returns the multigrid with the given radius, the intersections keep their lines and tiles,
+     * only the tiles of the new intersections are calculated.
+     */
+    public Multigrid withRadius(int gridRadius) {
+        return derive(gridRadius, gridInset, BuildMonitor.NONE);
+    }
+
+    /**
+     * Returns the multigrid of the disk with the given radius and inset like withRadius and withInset,
+     * the monitor can cancel the build.
+     */
+    public Multigrid derive(int gridRadius, double gridInset, BuildMonitor monitor) {
+        if (window == null && gridRadius == this.gridRadius && gridInset == this.gridInset) {
+            return this;
+        }
+        return new Multigrid(this, gridRadius, gridInset, null, monitor);
+    }
+
+    /**
+     * Returns the multigrid covering another window, the tiles of the previous window are reused.
+     */
+    public Multigrid withWindow(Rectangle2D window) {
+        return withWindow(window, BuildMonitor.NONE);
+    }
+
+    // Returns the multigrid covering another window like withWindow, the monitor can cancel the build
+    public Multigrid withWindow(Rectangle2D window, BuildMonitor monitor) {
+        if (window.equals(this.window)) {
+            return this;
+        }
+        return new Multigrid(this, gridRadius, 0, window.getBounds2D(), monitor);
+    }
+
+    public boolean isExact() {
+        return cyclotomic != null;
+    }
+
+    // The window of the tiling or null if the whole disk is generated
+    public Rectangle2D getWindow() {
+        return window;
+    }
+
+    public List<Double> getOffsetList() {
+        return offsetList;
+    }
+
+    // Returns the index of the same intersection in the previous multigrid or -1 for every intersection
+    private int[] calculateIntersections(BuildExecutor executor, Multigrid previous) {
+        GridPairLayout layout = new GridPairLayout(gridList);
+        int pointCount = layout.getPointCount();
+        double[] xArray = new double[pointCount];
+        double[] yArray = new double[pointCount];
+        executor.forEachChunk(pointCount, (chunk, from, to) -> {
+            for (int p = from; p < to; p++) {
+                int i = layout.getRowGrid(p);
+                int j = layout.getColumnGrid(p);
+                GridLine firstOne = gridList.get(i).getLineList().getFirst();
+                GridLine firstTwo = gridList.get(j).getLineList().getFirst();
+                double offsetOne = gridList.get(i).getLineList().get(layout.getRowLine(p)).getOffset();
+                double offsetTwo = gridList.get(j).getLineList().get(layout.getColumnLine(p)).getOffset();
+                double determinant = layout.getDeterminant(i, j);
+                yArray[p] = -(offsetOne * firstTwo.angleCos - offsetTwo * firstOne.angleCos) / determinant;
+                xArray[p] = (offsetOne * firstTwo.angleSin - offsetTwo * firstOne.angleSin) / determinant;
+            }
+        });
+        executor.checkpoint(.1);
+
+        // the intersections closer than SMALL_EPSILON are the same multi-line intersection
+        int[] representatives = new PointWeldIndex(SMALL_EPSILON, xArray, yArray, pointCount, executor).weld(executor);
+        executor.checkpoint(.3);
+
+        // An intersection of the previous multigrid is found by the numbers of its grid lines
+        int[] previousPoints = new int[pointCount];
+        Arrays.fill(previousPoints, -1);
+        if (previous != null) {
+            GridPairLayout previousLayout = new GridPairLayout(previous.gridList);
+            executor.forEachChunk(previous.intersectionPoints.length, (chunk, from, to) -> {
+                for (int n = from; n < to; n++) {
+                    int previousPoint = previous.intersectionPoints[n];
+                    int gridOne = previousLayout.getRowGrid(previousPoint);
+                    int gridTwo = previousLayout.getColumnGrid(previousPoint);
+                    int lineOne = previousLayout.getRowLine(previousPoint) + getLineShift(previous, gridOne);
+                    int lineTwo = previousLayout.getColumnLine(previousPoint) + getLineShift(previous, gridTwo);
+                    if (lineOne >= 0 && lineOne < layout.getLineCount(gridOne)
+                            && lineTwo >= 0 && lineTwo < layout.getLineCount(gridTwo)) {
+                        previousPoints[layout.getPoint(gridOne, lineOne, gridTwo, lineTwo)] = n;
                     }
-                    if (!lineMap.get(lineTwo).contains(point)) {
-                        lineMap.get(lineTwo).add(point);
+                }
+            });
+        }
+
+        GridPoint[] pointArray = new GridPoint[pointCount];
+        List<Set<GridLine>> pointLineSetList = new ArrayList<>(Collections.nCopies(pointCount, null));
+        executor.forEachChunk(pointCount, (chunk, from, to) -> {
+            for (int p = from; p < to; p++) {
+                if (representatives[p] == p && (gridWindow == null || gridWindow.contains(xArray[p], yArray[p]))) {
+                    pointArray[p] = new GridPoint(xArray[p], yArray[p]);
+                    Set<GridLine> lineSet = new HashSet<>();
+                    lineSet.add(getRowLine(layout, p));
+                    lineSet.add(getColumnLine(layout, p));
+                    pointLineSetList.set(p, lineSet);
+                }
+            }
+        });
+        List<Integer> pointIndexList = new ArrayList<>();
+        for (int p = 0; p < pointCount; p++) {
+            int representative = representatives[p];
+            if (pointArray[representative] == null) {
+                // outside of the window
+                continue;
+            }
+            if (representative == p) {
+                pointIndexList.add(p);
+            } else {
+                Set<GridLine> lineSet = pointLineSetList.get(representative);
+                lineSet.add(getRowLine(layout, p));
+                lineSet.add(getColumnLine(layout, p));
+            }
+        }
+
+        // The previous intersection is reused if it has the same lines
+        int intersectionCount = pointIndexList.size();
+        GridPoint[] intersectionArray = new GridPoint[intersectionCount];
+        List<Set<GridLine>> lineSetList = new ArrayList<>(Collections.nCopies(intersectionCount, null));
+        intersectionPoints = new int[intersectionCount];
+        intersectionMap = new ConcurrentHashMap<>(intersectionCount);
+        int[] previousIntersections = new int[intersectionCount];
+        executor.forEachChunk(intersectionCount, (chunk, from, to) -> {
+            for (int n = from; n < to; n++) {
+                int p = pointIndexList.get(n);
+                Set<GridLine> lineSet = pointLineSetList.get(p);
+                int previousIndex = previousPoints[p];
+                if (previousIndex != -1 && previous.intersectionLineSetList.get(previousIndex).equals(lineSet)) {
+                    pointArray[p] = previous.intersectionList.get(previousIndex);
+                    lineSet = previous.intersectionLineSetList.get(previousIndex);
+                } else {
+                    previousIndex = -1;
+                }
+                previousIntersections[n] = previousIndex;
+                intersectionPoints[n] = p;
+                intersectionArray[n] = pointArray[p];
+                lineSetList.set(n, lineSet);
+                intersectionMap.put(pointArray[p], lineSet);
+            }
+        });
+        intersectionList = List.of(intersectionArray);
+        intersectionLineSetList = Collections.unmodifiableList(lineSetList);
+        executor.checkpoint(.4);
+
+        // Every line collects its intersections in the order they would be met by walking the rows,
+        // a multi-line intersection is added once
+        int[] pointIntersections = new int[pointCount];
+        Arrays.fill(pointIntersections, -1);
+        for (int n = 0; n < intersectionCount; n++) {
+            pointIntersections[intersectionPoints[n]] = n;
+        }
+        List<List<GridPoint>> lineIntersections = new ArrayList<>(Collections.nCopies(layout.getLineCount(), null));
+        lineIntersectionOrder = new int[layout.getLineCount()][];
+        executor.forEachChunk(lineIntersections.size(), (chunk, from, to) -> {
+            for (int l = from; l < to; l++) {
+                int g = 0;
+                while (l >= layout.getLineStart(g + 1)) {
+                    g++;
+                }
+                int c = l - layout.getLineStart(g);
+                int[] line = new int[layout.getLineCount() - layout.getLineCount(g)];
+                int count = 0;
+                for (int i = 0; i < g; i++) {
+                    if (!layout.isParallel(i, g)) {
+                        for (int a = 0; a < layout.getLineCount(i); a++) {
+                            int p = layout.getPoint(i, a, g, c);
+                            count = addLineIntersection(line, count, pointIntersections[representatives[p]], representatives[p] != p);
+                        }
                     }
                 }
+                for (int p = layout.getRowStart(g, c); p < layout.getRowEnd(g, c); p++) {
+                    count = addLineIntersection(line, count, pointIntersections[representatives[p]], representatives[p] != p);
+                }
+                List<GridPoint> list = new ArrayList<>(count);
+                for (int k = 0; k < count; k++) {
+                    list.add(intersectionArray[line[k]]);
+                }
+                lineIntersections.set(l, list);
+                lineIntersectionOrder[l] = sortAlongLine(lineList.get(l), Arrays.copyOf(line, count));
+            }
+        });
+        for (int l = 0; l < lineIntersections.size(); l++) {
+            if (!lineIntersections.get(l).isEmpty()) {
+                lineMap.put(lineList.get(l), lineIntersections.get(l));
             }
         }
+        executor.checkpoint(.5);
+        return previousIntersections;
+    }
 
-        calculateTiles();
+    // Returns the new count of the intersections on the line
+    private static int addLineIntersection(int[] line, int count, int intersection, boolean isWelded) {
+        if (intersection == -1) {
+            // outside of the window
+            return count;
+        }
+        // a welded point is met again on the same line only if the line passes through the multi-line intersection
+        if (isWelded) {
+            for (int k = 0; k < count; k++) {
+                if (line[k] == intersection) {
+                    return count;
+                }
+            }
+        }
+        line[count] = intersection;
+        return count + 1;
     }
 
-    private void calculateTiles() {
-        tileList = new ArrayList<>();
-        Set<Double> tileAreaSet = new TreeSet<>();
-        vertexIndexSet = new HashSet<>();
+    // Orders the intersections by their position along the line
+    private int[] sortAlongLine(GridLine line, int[] intersections) {
+        double[] positions = new double[intersections.length];
+        for (int k = 0; k < intersections.length; k++) {
+            GridPoint point = intersectionList.get(intersections[k]);
+            positions[k] = point.y() * line.angleCos - point.x() * line.angleSin;
+        }
+        double[] sortedPositions = positions.clone();
+        Arrays.sort(sortedPositions);
+        int[] sorted = new int[intersections.length];
+        Arrays.fill(sorted, -1);
+        for (int k = 0; k < intersections.length; k++) {
+            int position = Arrays.binarySearch(sortedPositions, positions[k]);
+            while (position > 0 && sortedPositions[position - 1] == positions[k]) {
+                position--;
+            }
+            while (sorted[position] != -1) {
+                // equal positions of different points
+                position++;
+            }
+            sorted[position] = intersections[k];
+        }
+        return sorted;
+    }
 
-        for (GridPoint intersection : getIntersections()) {
+    // Converts the line number of the previous grid to the line number of this one
+    private int getLineShift(Multigrid previous, int grid) {
+        return previous.gridList.get(grid).getMinIndex() - gridList.get(grid).getMinIndex();
+    }
 
-            // Skip the hanging tiles
-            if (!contains(intersection)) {
-                continue;
-            }
+    private GridLine getRowLine(GridPairLayout layout, int point) {
+        return gridList.get(layout.getRowGrid(point)).getLineList().get(layout.getRowLine(point));
+    }
 
-            List<Double> angles = new ArrayList<>();
-            Set<GridLine> lineSet = getIntersectedLineSet(intersection);
+    private GridLine getColumnLine(GridPairLayout layout, int point) {
+        return gridList.get(layout.getColumnGrid(point)).getLineList().get(layout.getColumnLine(point));
+    }
 
-            for (GridLine line : lineSet) {
-                angles.add(line.getAngle());
-                angles.add((line.getAngle() + Math.PI) % (2 * Math.PI));
+    private void calculateTiles(BuildExecutor executor, Multigrid previous, IntUnaryOperator previousIntersection) {
+        int chunkCount = executor.getChunkCount(intersectionList.size());
+        TileStore[] chunkStores = new TileStore[chunkCount];
+        intersectionTiles = new int[intersectionList.size()];
+        GridPairLayout layout = new GridPairLayout(gridList);
+        executor.forEachChunk(intersectionList.size(), (chunk, from, to) -> {
+            TileStore store = new TileStore(to - from, getKeyLength(), symmetry);
+            RhombusBuilder builder = new RhombusBuilder(symmetry, cosTable, sinTable, offsetList, cyclotomic);
+            for (int n = from; n < to; n++) {
+                GridPoint intersection = intersectionList.get(n);
+
+                // Skip the hanging tiles
+                if (!contains(intersection)) {
+                    intersectionTiles[n] = HANGING_TILE;
+                    continue;
+                }
+                int previousIndex = previous == null ? -1 : previousIntersection.applyAsInt(n);
+                int previousTile = previousIndex == -1 ? HANGING_TILE : previous.intersectionTiles[previousIndex];
+                if (previousTile == HANGING_TILE) {
+                    intersectionTiles[n] = calculateTile(n, layout, store, builder);
+                } else if (previousTile == NO_TILE) {
+                    intersectionTiles[n] = NO_TILE;
+                } else if (!builder.load(previous.tileStore, previousTile).overlaps(window)) {
+                    intersectionTiles[n] = HANGING_TILE;
+                } else {
+                    intersectionTiles[n] = store.addFrom(previous.tileStore, previousTile);
+                }
             }
+            chunkStores[chunk] = store;
+        }, .5, .9);
+
+        tileStore = new TileStore(0, getKeyLength(), symmetry);
+        for (int chunk = 0; chunk < chunkCount; chunk++) {
+            int chunkStart = tileStore.size();
+            for (int n = chunk * BuildExecutor.CHUNK_SIZE; n < Math.min(intersectionTiles.length, (chunk + 1) * BuildExecutor.CHUNK_SIZE); n++) {
+                if (intersectionTiles[n] >= 0) {
+                    intersectionTiles[n] += chunkStart;
+                }
+            }
+            tileStore.addAll(chunkStores[chunk]);
+        }
+        tileStore.finish();
+        tileAdjacency = new TileAdjacency(tileStore, lineIntersectionOrder, intersectionTiles);
 
-            angles.sort(Comparator.naturalOrder());
+        vertexIndexSet = tileStore.createVertexIndexSet();
+        tilingRadius = tileStore.getTilingRadius();
+        tileAreaList = tileStore.createAreaList();
+    }
 
-            List<GridPoint> offsetList = new ArrayList<>();
-            for (Double angle : angles) {
-                double x = intersection.x() + SMALL_EPSILON * -Math.sin(angle);
-                double y = intersection.y() + SMALL_EPSILON * Math.cos(angle);
-                GridPoint offset = new GridPoint(x, y);
-                offsetList.add(offset);
-            }
-            List<GridPoint> medianList = new ArrayList<>();
-            int offsetListSize = offsetList.size();
+    // Returns the index of the tile in the store, NO_TILE or HANGING_TILE for a tile outside the window
+    private int calculateTile(int intersection, GridPairLayout layout, TileStore tileStore, RhombusBuilder builder) {
+        if (intersectionLineSetList.get(intersection).size() != 2) {
+            // the dual of a singular point of m lines has 2 * m vertices, it is never a rhombus
+            return NO_TILE;
+        }
+        int point = intersectionPoints[intersection];
+        int gridOne = layout.getRowGrid(point);
+        int gridTwo = layout.getColumnGrid(point);
+        int lineOne = gridList.get(gridOne).getMinIndex() + layout.getRowLine(point);
+        int lineTwo = gridList.get(gridTwo).getMinIndex() + layout.getColumnLine(point);
+        GridPoint p = intersectionList.get(intersection);
+        if (!builder.build(p.x(), p.y(), gridOne, lineOne, gridTwo, lineTwo, layout.getDeterminant(gridOne, gridTwo))) {
+            // a line of a third grid goes through the point
+            return NO_TILE;
+        }
+        if (!builder.overlaps(window)) {
+            return HANGING_TILE;
+        }
+        return builder.addTo(tileStore);
+    }
 
-            for (int i = 0; i < offsetListSize; i++) {
-                GridPoint offset = offsetList.get(i);
-                double x0 = offset.x();
-                double y0 = offset.y();
+    private int getKeyLength() {
+        return cyclotomic == null ? 0 : cyclotomic.getDegree();
+    }
 
-                double x1 = offsetList.get((i + 1) % offsetListSize).x();
-                double y1 = offsetList.get((i + 1) % offsetListSize).y();
+    private List<GridPoint> calculateDualList(GridPoint intersection, List<Integer> dualIndexList) {
+        List<Double> angles = new ArrayList<>();
+        Set<GridLine> lineSet = getIntersectedLineSet(intersection);
 
-                double xm = (x0 + x1) / 2;
-                double ym = (y0 + y1) / 2;
+        for (GridLine line : lineSet) {
+            angles.add(line.getAngle());
+            angles.add((line.getAngle() + Math.PI) % (2 * Math.PI));
+        }
 
-                GridPoint median = new GridPoint(xm, ym);
-                medianList.add(median);
-            }
+        angles.sort(Comparator.naturalOrder());
 
-            List<GridPoint> dualList = new ArrayList<>();
-            List<Integer> dualIndexList = new ArrayList<>();
-            double meanX = 0, meanY = 0;
+        List<GridPoint> offsetList = new ArrayList<>();
+        for (Double angle : angles) {
+            double x = intersection.x() + SMALL_EPSILON * -Math.sin(angle);
+            double y = intersection.y() + SMALL_EPSILON * Math.cos(angle);
+            GridPoint offset = new GridPoint(x, y);
+            offsetList.add(offset);
+        }
+        List<GridPoint> medianList = new ArrayList<>();
+        int offsetListSize = offsetList.size();
 
-            for (GridPoint median : medianList) {
-                double xd = 0, yd = 0;
+        for (int i = 0; i < offsetListSize; i++) {
+            GridPoint offset = offsetList.get(i);
+            double x0 = offset.x();
+            double y0 = offset.y();
 
-                double vertexIndex = 0;
+            double x1 = offsetList.get((i + 1) % offsetListSize).x();
+            double y1 = offsetList.get((i + 1) % offsetListSize).y();
 
+            double xm = (x0 + x1) / 2;
+            double ym = (y0 + y1) / 2;
 
-                for (int i = 0; i < this.symmetry; i++) {
-                    double ci = cosTable.get(i);
-                    double si = sinTable.get(i);
+            GridPoint median = new GridPoint(xm, ym);
+            medianList.add(median);
+        }
 
-                    double temp = median.x() * ci + median.y() * si - gridList.get(i).getOffset();
-                    double k = Math.floor(temp);
+        List<GridPoint> dualList = new ArrayList<>();
+        double meanX = 0, meanY = 0;
 
-                    vertexIndex += k;
-                    xd += k * ci;
-                    yd += k * si;
-                }
-                GridPoint dual =
-                        new GridPoint(roundWithSmallEpsilon(xd), roundWithSmallEpsilon(yd));
-                dualList.add(dual);
-
-                int sum = (int) vertexIndex % this.symmetry;
-                dualIndexList.add(Math.abs(sum));
-                meanX += xd;
-                meanY += yd;
-            }
+        for (GridPoint median : medianList) {
+            double xd = 0, yd = 0;
 
-            dualMap.put(intersection, dualList);
+            double vertexIndex = 0;
 
-            if (isRhombus(dualList)) {
 
-                GridTile tile = new GridTile(dualList, dualIndexList);
-                tileList.add(tile);
-                tileAreaSet.add(tile.getArea());
+            for (int i = 0; i < this.symmetry; i++) {
+                double ci = cosTable.get(i);
+                double si = sinTable.get(i);
 
-                dualIndexList.sort(null);
-                vertexIndexSet.add(dualIndexList);
+                double temp = median.x() * ci + median.y() * si - gridList.get(i).getOffset();
+                double k = Math.floor(temp);
 
-                for (GridPoint point : dualList) {
-                    if (point.x() > tilingRadius) {
-                        tilingRadius = point.x();
-                    }
-                    if (point.y() > tilingRadius) {
-                        tilingRadius = point.y();
-                    }
-                }
+                vertexIndex += k;
+                xd += k * ci;
+                yd += k * si;
             }
+            GridPoint dual =
+                    new GridPoint(roundWithSmallEpsilon(xd), roundWithSmallEpsilon(yd));
+            dualList.add(dual);
+
+            int sum = (int) vertexIndex % this.symmetry;
+            dualIndexList.add(Math.abs(sum));
+            meanX += xd;
+            meanY += yd;
         }
-        tileList = Collections.unmodifiableList(tileList);
-        tileAreaList = Collections.unmodifiableList(new ArrayList<>(tileAreaSet));
+
+        return dualList;
     }
 
     public boolean contains(GridPoint point) {
+        if (gridWindow != null && !gridWindow.contains(point.x(), point.y())) {
+            return false;
+        }
         for (Grid grid : gridList) {
             if (!grid.contains(point)) {
                 return false;
@@ -230,7 +651,16 @@ public class Multigrid {
     }
 
     public List<GridTile> getTileList() {
-        return tileList;
+        return tileStore.asList();
+    }
+
+    public TileStore getTileStore() {
+        return tileStore;
+    }
+
+    // The tiles sharing an edge, the tiles are numbered like in the tile store
+    public TileAdjacency getTileAdjacency() {
+        return tileAdjacency;
     }
 
     public List<Double> getTileAreaList() {
@@ -245,11 +675,37 @@ public class Multigrid {
         return tilingRadius;
     }
 
+    // The intersections in the order of the tiles
     public Set<GridPoint> getIntersections() {
-        return intersectionMap.keySet();
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<GridPoint> iterator() {
+                return intersectionList.iterator();
+            }
+
+            @Override
+            public int size() {
+                return intersectionList.size();
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return intersectionMap.containsKey(o);
+            }
+        };
     }
 
-    public Map<GridPoint, List<GridPoint>> getDualMap() {
+    public synchronized Map<GridPoint, List<GridPoint>> getDualMap() {
+        if (dualMap == null) {
+            Map<GridPoint, List<GridPoint>> map = new HashMap<>();
+            for (int n = 0; n < intersectionList.size(); n++) {
+                if (intersectionTiles[n] != HANGING_TILE) {
+                    GridPoint intersection = intersectionList.get(n);
+                    map.put(intersection, calculateDualList(intersection, new ArrayList<>()));
+                }
+            }
+            dualMap = Collections.unmodifiableMap(map);
+        }
         return dualMap;
     }
 
@@ -297,7 +753,7 @@ public class Multigrid {
         System.out.println("line2.isPointOnLine(p2) = " + line2.isPointOnLine(p2));
     }
 
-    private static final double SMALL_EPSILON = 1e-10;
+    static final double SMALL_EPSILON = 1e-10;
     private static final double BIG_EPSILON = 1e-6;
 
     static boolean equalWithSmallEpsilon(double a, double b) {
@@ -0,0 +1,127 @@
+package tilings.multigrid;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Keeps the recently built multigrids by their parameters. The least recently used ones are evicted
+ * when there are more than maxSize of them or their total weight is more than maxWeight.
+ * The weight of a multigrid is the number of its intersections and tiles, it grows with the memory the multigrid takes.
+ * <p>
+ * The cache is thread safe, the multigrids are built outside of the lock.
+ */
+public class MultigridCache {
+    private final int maxSize;
+    private final long maxWeight;
+    // in the access order, the eldest entry is the least recently used one
+    private final LinkedHashMap<MultigridParameters, Multigrid> multigridMap = new LinkedHashMap<>(16, 0.75f, true);
+    private long weight;
+
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+
+    public MultigridCache(int maxSize, long maxWeight) {
+        if (maxSize < 1 || maxWeight < 1) {
+            throw new IllegalArgumentException("Cache bounds must be positive: " + maxSize + ", " + maxWeight);
+        }
+        this.maxSize = maxSize;
+        this.maxWeight = maxWeight;
+    }
+
+    public static long getWeight(Multigrid multigrid) {
+        return (long) multigrid.getIntersections().size() + multigrid.getTileStore().size();
+    }
+
+    // Returns the cached multigrid or null, the multigrid becomes the most recently used one
+    public synchronized Multigrid get(MultigridParameters parameters) {
+        Multigrid multigrid = multigridMap.get(parameters);
+        if (multigrid != null) {
+            hitCount++;
+        } else {
+            missCount++;
+        }
+        return multigrid;
+    }
+
+    /**
+     * Returns the cached multigrid or builds and caches it, the cache is not locked while the multigrid is built.
+     * The builder may take a cached multigrid with the same lines to derive the new one, see findSameLines.
+     */
+    public Multigrid get(MultigridParameters parameters, Function<MultigridParameters, Multigrid> builder) {
+        Multigrid multigrid = get(parameters);
+        if (multigrid == null) {
+            multigrid = builder.apply(parameters);
+            put(parameters, multigrid);
+        }
+        return multigrid;
+    }
+
+    // The most recently used multigrid whose lines are the same as the lines of the parameters or null
+    public synchronized Multigrid findSameLines(MultigridParameters parameters) {
+        Multigrid found = null;
+        for (Map.Entry<MultigridParameters, Multigrid> entry : multigridMap.entrySet()) {
+            if (entry.getKey().hasSameLines(parameters)) {
+                found = entry.getValue();
+            }
+        }
+        return found;
+    }
+
+    // A multigrid heavier than maxWeight is not kept
+    public synchronized void put(MultigridParameters parameters, Multigrid multigrid) {
+        Multigrid previous = multigridMap.put(parameters, multigrid);
+        if (previous != null) {
+            weight -= getWeight(previous);
+        }
+        weight += getWeight(multigrid);
+
+        Iterator<Multigrid> iterator = multigridMap.values().iterator();
+        while (iterator.hasNext() && (multigridMap.size() > maxSize || weight > maxWeight)) {
+            weight -= getWeight(iterator.next());
+            iterator.remove();
+            evictionCount++;
+        }
+    }
+
+    public synchronized void clear() {
+        multigridMap.clear();
+        weight = 0;
+    }
+
+    public synchronized int size() {
+        return multigridMap.size();
+    }
+
+    public synchronized long getWeight() {
+        return weight;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public long getMaxWeight() {
+        return maxWeight;
+    }
+
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "MultigridCache(size " + multigridMap.size() + ", weight " + weight
+                + ", hits " + hitCount + ", misses " + missCount + ", evictions " + evictionCount + ")";
+    }
+}
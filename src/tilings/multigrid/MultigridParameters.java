@@ -0,0 +1,33 @@
+package tilings.multigrid;
+
+import java.util.List;
+
+/**
+ * The parameters of a multigrid covering the disk, two multigrids built with equal parameters have the same tiles.
+ */
+public record MultigridParameters(int symmetry, int gridRadius, List<Double> offsetList, double gridInset, boolean exact) {
+
+    public MultigridParameters {
+        if (offsetList.size() != symmetry) {
+            throw new IllegalArgumentException("Expected " + symmetry + " offsets: " + offsetList);
+        }
+        offsetList = List.copyOf(offsetList);
+    }
+
+    public MultigridParameters(int symmetry, int gridRadius, List<Double> offsetList, double gridInset) {
+        this(symmetry, gridRadius, offsetList, gridInset, false);
+    }
+
+    public Multigrid build(int parallelism) {
+        return build(parallelism, BuildMonitor.NONE);
+    }
+
+    public Multigrid build(int parallelism, BuildMonitor monitor) {
+        return new Multigrid(symmetry, gridRadius, offsetList, gridInset, parallelism, exact, monitor);
+    }
+
+    // Tells if the multigrid of these parameters can be derived from the other one by withRadius and withInset
+    public boolean hasSameLines(MultigridParameters other) {
+        return symmetry == other.symmetry && exact == other.exact && offsetList.equals(other.offsetList);
+    }
+}
@@ -0,0 +1,344 @@
+package tilings.multigrid;
+
+import java.util.*;
+
+/**
+ * Builds a Penrose rhombus tiling by the deflation of the Robinson triangles, no grid lines are needed.
+ * A thin rhombus is two acute triangles and a thick one is two obtuse triangles, the halves share the base BC.
+ * Every deflation splits the triangles into the smaller ones, the points are multiplied by the golden ratio
+ * at the same time, so the edges stay of the length 1 and the points stay exact.
+ * <p>
+ * The points are the Cyclotomic keys of the 5th roots of unity, the golden ratio is 1 + z + z^4
+ * and the unit vector at the angle k * PI / 5 is (-z^3)^k. The sum of the lattice indices goes up by one
+ * along every edge, so the vertices get the same indices and arrows as in the tiling of the pentagrid.
+ */
+public class PenroseSubstitution implements Tiling {
+    private static final int SYMMETRY = 5;
+    private static final int KEY_LENGTH = SYMMETRY - 1;
+    // the color and the keys of the points A, B and C of a triangle
+    private static final int TRIANGLE_LENGTH = 1 + 3 * KEY_LENGTH;
+    private static final int ACUTE = 0;
+    private static final int OBTUSE = 1;
+
+    private final int generations;
+    private final Cyclotomic cyclotomic = new Cyclotomic(SYMMETRY);
+    private final List<Double> offsetList;
+    private final TileStore tileStore;
+    private final List<Double> tileAreaList;
+    private final Set<List<Integer>> vertexIndexSet;
+    private final double tilingRadius;
+
+    /**
+     * Deflates the sun of ten acute triangles, the patch has about 4 * 2.618^generations rhombi.
+     */
+    public PenroseSubstitution(int generations) {
+        if (generations < 1) {
+            throw new IllegalArgumentException("At least one generation is needed: " + generations);
+        }
+        this.generations = generations;
+        int[] triangles = createSun();
+        for (int g = 0; g < generations; g++) {
+            triangles = deflate(triangles);
+        }
+        int[] rhombi = joinHalves(triangles);
+
+        // the sums of the vertices take four classes, the missing one tells the offsets of the same pentagrid
+        int rhombusLength = 4 * KEY_LENGTH + 1;
+        boolean[] classes = new boolean[SYMMETRY];
+        for (int offset = 0; offset < rhombi.length; offset += rhombusLength) {
+            for (int v = 0; v < TileStore.VERTEX_COUNT; v++) {
+                classes[Math.floorMod(getSum(rhombi, offset + v * KEY_LENGTH), SYMMETRY)] = true;
+            }
+        }
+        int missing = 0;
+        while (missing < SYMMETRY && classes[missing]) {
+            missing++;
+        }
+        if (missing == SYMMETRY) {
+            throw new RuntimeException("Vertices take all index classes");
+        }
+        if (missing == 0) {
+            // the pentagrid with the zero sum of the offsets is singular, the tiling is moved by e_0
+            for (int offset = 0; offset < rhombi.length; offset += rhombusLength) {
+                for (int v = 0; v < TileStore.VERTEX_COUNT; v++) {
+                    rhombi[offset + v * KEY_LENGTH]++;
+                }
+            }
+            missing = 1;
+        }
+        int offsetSum = SYMMETRY - missing;
+        if (offsetSum % 2 == 0) {
+            // the painters draw the arrows of the offsets 0.2 and 0.6 if the rhombi are not reversed,
+            // the point reflection negates the sums and the offsets
+            for (int offset = 0; offset < rhombi.length; offset += rhombusLength) {
+                for (int k = 0; k < TileStore.VERTEX_COUNT * KEY_LENGTH; k++) {
+                    rhombi[offset + k] = -rhombi[offset + k];
+                }
+            }
+            offsetSum = SYMMETRY - offsetSum;
+        }
+        offsetList = Collections.nCopies(SYMMETRY, (double) offsetSum / SYMMETRY);
+
+        tileStore = createTileStore(rhombi, offsetSum);
+        vertexIndexSet = tileStore.createVertexIndexSet();
+        tilingRadius = tileStore.getTilingRadius();
+        tileAreaList = tileStore.createAreaList();
+    }
+
+    // Ten acute triangles around the origin, every second one is mirrored
+    private int[] createSun() {
+        int[] triangles = new int[2 * SYMMETRY * TRIANGLE_LENGTH];
+        for (int i = 0; i < 2 * SYMMETRY; i++) {
+            int t = i * TRIANGLE_LENGTH;
+            triangles[t] = ACUTE;
+            int[] b = getUnit(i % 2 == 0 ? i + 1 : i);
+            int[] c = getUnit(i % 2 == 0 ? i : i + 1);
+            System.arraycopy(b, 0, triangles, t + 1 + KEY_LENGTH, KEY_LENGTH);
+            System.arraycopy(c, 0, triangles, t + 1 + 2 * KEY_LENGTH, KEY_LENGTH);
+        }
+        return triangles;
+    }
+
+    // The key of the unit vector at the angle k * PI / 5
+    private int[] getUnit(int k) {
+        int[] coefficients = new int[SYMMETRY];
+        coefficients[3 * k % SYMMETRY] = k % 2 == 0 ? 1 : -1;
+        cyclotomic.reduce(coefficients);
+        return Arrays.copyOf(coefficients, KEY_LENGTH);
+    }
+
+    private int[] deflate(int[] triangles) {
+        int count = triangles.length / TRIANGLE_LENGTH;
+        int newCount = 0;
+        for (int t = 0; t < count; t++) {
+            newCount += triangles[t * TRIANGLE_LENGTH] == ACUTE ? 2 : 3;
+        }
+        int[] result = new int[newCount * TRIANGLE_LENGTH];
+        int[] a = new int[KEY_LENGTH], b = new int[KEY_LENGTH], c = new int[KEY_LENGTH];
+        int[] sa = new int[KEY_LENGTH], sb = new int[KEY_LENGTH], sc = new int[KEY_LENGTH];
+        int[] p = new int[KEY_LENGTH], q = new int[KEY_LENGTH];
+        int[] buffer = new int[SYMMETRY];
+        int r = 0;
+        for (int t = 0; t < count; t++) {
+            int offset = t * TRIANGLE_LENGTH;
+            System.arraycopy(triangles, offset + 1, a, 0, KEY_LENGTH);
+            System.arraycopy(triangles, offset + 1 + KEY_LENGTH, b, 0, KEY_LENGTH);
+            System.arraycopy(triangles, offset + 1 + 2 * KEY_LENGTH, c, 0, KEY_LENGTH);
+            multiplyByGoldenRatio(a, sa, buffer);
+            multiplyByGoldenRatio(b, sb, buffer);
+            multiplyByGoldenRatio(c, sc, buffer);
+            if (triangles[offset] == ACUTE) {
+                // P = A + (B - A) / golden ratio before the scaling
+                for (int k = 0; k < KEY_LENGTH; k++) {
+                    p[k] = sa[k] + b[k] - a[k];
+                }
+                r = addTriangle(result, r, ACUTE, sc, p, sb);
+                r = addTriangle(result, r, OBTUSE, p, sc, sa);
+            } else {
+                // Q = B + (A - B) / golden ratio, R = B + (C - B) / golden ratio
+                for (int k = 0; k < KEY_LENGTH; k++) {
+                    q[k] = sb[k] + a[k] - b[k];
+                    p[k] = sb[k] + c[k] - b[k];
+                }
+                r = addTriangle(result, r, OBTUSE, p, sc, sa);
+                r = addTriangle(result, r, OBTUSE, q, p, sb);
+                r = addTriangle(result, r, ACUTE, p, q, sa);
+            }
+        }
+        return result;
+    }
+
+    private static int addTriangle(int[] triangles, int offset, int color, int[] a, int[] b, int[] c) {
+        triangles[offset] = color;
+        System.arraycopy(a, 0, triangles, offset + 1, KEY_LENGTH);
+        System.arraycopy(b, 0, triangles, offset + 1 + KEY_LENGTH, KEY_LENGTH);
+        System.arraycopy(c, 0, triangles, offset + 1 + 2 * KEY_LENGTH, KEY_LENGTH);
+        return offset + TRIANGLE_LENGTH;
+    }
+
+    // The golden ratio is 1 + z + z^4, the multiplication by z moves the coefficients up
+    private void multiplyByGoldenRatio(int[] key, int[] result, int[] buffer) {
+        Arrays.fill(buffer, 0);
+        for (int k = 0; k < KEY_LENGTH; k++) {
+            buffer[k] += key[k];
+            buffer[(k + 1) % SYMMETRY] += key[k];
+            buffer[(k + SYMMETRY - 1) % SYMMETRY] += key[k];
+        }
+        cyclotomic.reduce(buffer);
+        System.arraycopy(buffer, 0, result, 0, KEY_LENGTH);
+    }
+
+    /**
+     * Joins the triangles with their mirrored halves, the halves on the border of the patch are dropped.
+     * The mirrored half of the triangle ABC is A'CB with A' = B + C - A, the rhombus is added by the half with the smaller A.
+     * Returns the keys of the vertices A, B, A', C of every rhombus and its color after them.
+     */
+    private static int[] joinHalves(int[] triangles) {
+        int count = triangles.length / TRIANGLE_LENGTH;
+        int capacity = Integer.highestOneBit(Math.max(1, count)) * 4;
+        int[] slots = new int[capacity];
+        Arrays.fill(slots, -1);
+        for (int t = 0; t < count; t++) {
+            int slot = triangleHash(triangles, t * TRIANGLE_LENGTH + 1) & (capacity - 1);
+            while (slots[slot] != -1) {
+                slot = (slot + 1) & (capacity - 1);
+            }
+            slots[slot] = t;
+        }
+
+        int[] rhombi = new int[count / 2 * (4 * KEY_LENGTH + 1)];
+        int size = 0;
+        int[] mirror = new int[TRIANGLE_LENGTH];
+        for (int t = 0; t < count; t++) {
+            int offset = t * TRIANGLE_LENGTH;
+            mirror[0] = triangles[offset];
+            for (int k = 0; k < KEY_LENGTH; k++) {
+                int a = triangles[offset + 1 + k];
+                int b = triangles[offset + 1 + KEY_LENGTH + k];
+                int c = triangles[offset + 1 + 2 * KEY_LENGTH + k];
+                mirror[1 + k] = b + c - a;
+                mirror[1 + KEY_LENGTH + k] = c;
+                mirror[1 + 2 * KEY_LENGTH + k] = b;
+            }
+            if (Arrays.compare(triangles, offset + 1, offset + 1 + KEY_LENGTH, mirror, 1, 1 + KEY_LENGTH) > 0) {
+                continue;
+            }
+            if (!contains(triangles, slots, mirror)) {
+                // the halves may list the base in the same order
+                System.arraycopy(triangles, offset + 1 + KEY_LENGTH, mirror, 1 + KEY_LENGTH, 2 * KEY_LENGTH);
+                if (!contains(triangles, slots, mirror)) {
+                    continue;
+                }
+            }
+            System.arraycopy(triangles, offset + 1, rhombi, size, 2 * KEY_LENGTH);
+            System.arraycopy(mirror, 1, rhombi, size + 2 * KEY_LENGTH, KEY_LENGTH);
+            System.arraycopy(triangles, offset + 1 + 2 * KEY_LENGTH, rhombi, size + 3 * KEY_LENGTH, KEY_LENGTH);
+            rhombi[size + 4 * KEY_LENGTH] = triangles[offset];
+            size += 4 * KEY_LENGTH + 1;
+        }
+        return Arrays.copyOf(rhombi, size);
+    }
+
+    // The triangles are found by the apex
+    private static int triangleHash(int[] array, int offset) {
+        long key = 0;
+        for (int k = offset; k < offset + KEY_LENGTH; k++) {
+            key = key * 0x9E3779B97F4A7C15L + array[k];
+        }
+        key ^= key >>> 29;
+        return (int) (key ^ (key >>> 32));
+    }
+
+    private static boolean contains(int[] triangles, int[] slots, int[] triangle) {
+        int slot = triangleHash(triangle, 1) & (slots.length - 1);
+        while (slots[slot] != -1) {
+            int offset = slots[slot] * TRIANGLE_LENGTH;
+            if (Arrays.equals(triangles, offset, offset + TRIANGLE_LENGTH, triangle, 0, TRIANGLE_LENGTH)) {
+                return true;
+            }
+            slot = (slot + 1) & (slots.length - 1);
+        }
+        return false;
+    }
+
+    private static int getSum(int[] keys, int offset) {
+        int sum = 0;
+        for (int k = offset; k < offset + KEY_LENGTH; k++) {
+            sum += keys[k];
+        }
+        return sum;
+    }
+
+    /**
+     * The vertex is lifted to the lattice with the sum of the indices from -offsetSum - 4 to -offsetSum - 1
+     * like in the pentagrid with the offsets offsetSum / 5, then every edge adds a unit vector.
+     */
+    private TileStore createTileStore(int[] rhombi, int offsetSum) {
+        int rhombusLength = 4 * KEY_LENGTH + 1;
+        int count = rhombi.length / rhombusLength;
+        TileStore store = new TileStore(count, KEY_LENGTH, SYMMETRY);
+        double[] x = new double[TileStore.VERTEX_COUNT];
+        double[] y = new double[TileStore.VERTEX_COUNT];
+        int[] indexes = new int[TileStore.VERTEX_COUNT];
+        int[] keys = new int[TileStore.VERTEX_COUNT * KEY_LENGTH];
+        int[] lattices = new int[TileStore.VERTEX_COUNT * SYMMETRY];
+        for (int n = 0; n < count; n++) {
+            int offset = n * rhombusLength;
+            // the vertices A, B, A', C go counterclockwise or clockwise
+            double cross = (getX(rhombi, offset + KEY_LENGTH) - getX(rhombi, offset))
+                    * (getY(rhombi, offset + 3 * KEY_LENGTH) - getY(rhombi, offset))
+                    - (getY(rhombi, offset + KEY_LENGTH) - getY(rhombi, offset))
+                    * (getX(rhombi, offset + 3 * KEY_LENGTH) - getX(rhombi, offset));
+            for (int v = 0; v < TileStore.VERTEX_COUNT; v++) {
+                int from = offset + (cross > 0 ? v : (TileStore.VERTEX_COUNT - v) % TileStore.VERTEX_COUNT) * KEY_LENGTH;
+                System.arraycopy(rhombi, from, keys, v * KEY_LENGTH, KEY_LENGTH);
+                x[v] = cyclotomic.getX(rhombi, from);
+                y[v] = cyclotomic.getY(rhombi, from);
+
+                int sum = getSum(rhombi, from);
+                int shift = Math.floorDiv(-offsetSum - 1 - sum, SYMMETRY);
+                for (int k = 0; k < SYMMETRY; k++) {
+                    lattices[v * SYMMETRY + k] = (k < KEY_LENGTH ? rhombi[from + k] : 0) + shift;
+                }
+                indexes[v] = Math.abs((sum + SYMMETRY * shift) % SYMMETRY);
+            }
+            int angle = rhombi[offset + 4 * KEY_LENGTH] == ACUTE ? 1 : 2;
+            store.add(x, y, indexes, keys, lattices, angle, Multigrid.roundWithBigEpsilon(Math.sin(angle * Math.PI / SYMMETRY)));
+        }
+        store.finish();
+        return store;
+    }
+
+    private double getX(int[] keys, int offset) {
+        return cyclotomic.getX(keys, offset);
+    }
+
+    private double getY(int[] keys, int offset) {
+        return cyclotomic.getY(keys, offset);
+    }
+
+    public int getGenerations() {
+        return generations;
+    }
+
+    @Override
+    public int getSymmetry() {
+        return SYMMETRY;
+    }
+
+    // The offsets of the pentagrids whose tilings have the same vertex indices
+    @Override
+    public List<Double> getOffsetList() {
+        return offsetList;
+    }
+
+    @Override
+    public boolean isExact() {
+        return true;
+    }
+
+    @Override
+    public TileStore getTileStore() {
+        return tileStore;
+    }
+
+    @Override
+    public List<GridTile> getTileList() {
+        return tileStore.asList();
+    }
+
+    @Override
+    public List<Double> getTileAreaList() {
+        return tileAreaList;
+    }
+
+    @Override
+    public Set<List<Integer>> getVertexIndexSet() {
+        return vertexIndexSet;
+    }
+
+    @Override
+    public double getTilingRadius() {
+        return tilingRadius;
+    }
+}
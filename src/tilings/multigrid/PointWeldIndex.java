@@ -0,0 +1,124 @@
+package tilings.multigrid;
+
+import java.util.Arrays;
+
+/**
+ * Merges points which are closer than the tolerance.
+ * The plane is split into square cells much bigger than the tolerance, a point is compared to the points
+ * of every cell its tolerance box touches, so the points lying on different sides of a cell border are welded too.
+ * Usually it is a single cell, the neighbouring ones are visited only near the border.
+ * The cells are found by a binary search in a sorted array of primitive long keys, no object is created per point.
+ * <p>
+ * Points are welded in their array order: a point joins the earliest representative within the tolerance
+ * or becomes a representative itself. The result does not depend on the number of threads.
+ */
+class PointWeldIndex {
+    private static final double CELL_SCALE = 1024;
+
+    private final double tolerance;
+    private final double cellSize;
+    private final double[] xArray;
+    private final double[] yArray;
+    private final int size;
+
+    // the cell hash in the high half and the point index in the low half, sorted
+    private final long[] cellEntries;
+
+    PointWeldIndex(double tolerance, double[] xArray, double[] yArray, int size, BuildExecutor executor) {
+        this.tolerance = tolerance;
+        this.cellSize = tolerance * CELL_SCALE;
+        this.xArray = xArray;
+        this.yArray = yArray;
+        this.size = size;
+
+        cellEntries = new long[size];
+        executor.forEachChunk(size, (chunk, from, to) -> {
+            for (int i = from; i < to; i++) {
+                cellEntries[i] = ((long) cellHash(getCell(xArray[i]), getCell(yArray[i])) << 32) | i;
+            }
+        });
+        if (executor.isParallel()) {
+            Arrays.parallelSort(cellEntries);
+        } else {
+            Arrays.sort(cellEntries);
+        }
+    }
+
+    /**
+     * Returns the index of the representative for every point, a representative refers to itself.
+     */
+    int[] weld(BuildExecutor executor) {
+        int[] representatives = new int[size];
+        boolean[] hasNeighbours = new boolean[size];
+        executor.forEachChunk(size, (chunk, from, to) -> {
+            for (int i = from; i < to; i++) {
+                representatives[i] = i;
+                hasNeighbours[i] = findNeighbour(i, null) != -1;
+            }
+        });
+
+        // Only the points of multi-line intersections have earlier neighbours,
+        // they are few and are resolved in order because a neighbour may have been welded itself
+        for (int i = 0; i < size; i++) {
+            if (hasNeighbours[i]) {
+                int neighbour = findNeighbour(i, representatives);
+                representatives[i] = neighbour != -1 ? neighbour : i;
+            }
+        }
+        return representatives;
+    }
+
+    // The earliest point before the given one within the tolerance, only representatives if they are known
+    private int findNeighbour(int index, int[] representatives) {
+        double x = xArray[index];
+        double y = yArray[index];
+        long maxCellX = getCell(x + tolerance);
+        long maxCellY = getCell(y + tolerance);
+        int found = -1;
+        for (long cx = getCell(x - tolerance); cx <= maxCellX; cx++) {
+            for (long cy = getCell(y - tolerance); cy <= maxCellY; cy++) {
+                long hash = cellHash(cx, cy);
+                int position = lowerBound(hash << 32);
+                while (position < size && (cellEntries[position] >> 32) == hash) {
+                    int candidate = (int) cellEntries[position];
+                    if (candidate >= index || (found != -1 && candidate >= found)) {
+                        break;
+                    }
+                    if ((representatives == null || representatives[candidate] == candidate)
+                            && Math.abs(xArray[candidate] - x) <= tolerance
+                            && Math.abs(yArray[candidate] - y) <= tolerance) {
+                        found = candidate;
+                        break;
+                    }
+                    position++;
+                }
+            }
+        }
+        return found;
+    }
+
+    private int lowerBound(long key) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (cellEntries[middle] < key) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private long getCell(double coordinate) {
+        return (long) Math.floor(coordinate / cellSize);
+    }
+
+    // Different cells may share a hash, such points are told apart by the distance check
+    private static int cellHash(long cellX, long cellY) {
+        long key = cellX * 0x9E3779B97F4A7C15L + cellY;
+        key ^= key >>> 29;
+        return (int) (key ^ (key >>> 32));
+    }
+}
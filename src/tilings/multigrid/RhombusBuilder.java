@@ -0,0 +1,166 @@
+package tilings.multigrid;
+
+import java.awt.geom.Rectangle2D;
+import java.util.List;
+
+/**
+ * Builds the rhombus dual to the intersection of two grid lines. The lattice indices K_l of the other grids
+ * are the same for all its vertices, the crossing grids take their line numbers or the numbers of the previous lines.
+ * The vertices go counterclockwise like the regions around the intersection.
+ * <p>
+ * When a line of another grid goes through the intersection too, the floor of that grid is ambiguous there.
+ * Such a point is probed like the baseline dual: every region takes its lattice indices at a point SMALL_EPSILON
+ * into it, and the four vertices are a tile only if their sides have the unit length.
+ * <p>
+ * The vertices of the last rhombus are kept in the arrays, one builder per chunk keeps the building of tiles free of allocations.
+ */
+class RhombusBuilder {
+    final double[] x = new double[TileStore.VERTEX_COUNT];
+    final double[] y = new double[TileStore.VERTEX_COUNT];
+    final int[] indexes = new int[TileStore.VERTEX_COUNT];
+    final int[] lattices;
+    final int[] keys;
+
+    private final int symmetry;
+    private final double[] cosTable;
+    private final double[] sinTable;
+    private final double[] offsets;
+    // the exact vertex keys or null if the vertices are rounded doubles
+    private final Cyclotomic cyclotomic;
+    private final int[] lattice;
+    private final int[] remainder;
+    private int angle;
+
+    RhombusBuilder(int symmetry, List<Double> cosTable, List<Double> sinTable, List<Double> offsetList, Cyclotomic cyclotomic) {
+        this.symmetry = symmetry;
+        this.cyclotomic = cyclotomic;
+        this.cosTable = new double[symmetry];
+        this.sinTable = new double[symmetry];
+        offsets = new double[symmetry];
+        for (int i = 0; i < symmetry; i++) {
+            this.cosTable[i] = cosTable.get(i);
+            this.sinTable[i] = sinTable.get(i);
+            offsets[i] = offsetList.get(i);
+        }
+        lattice = new int[symmetry];
+        lattices = new int[TileStore.VERTEX_COUNT * symmetry];
+        remainder = new int[symmetry];
+        keys = new int[TileStore.VERTEX_COUNT * getKeyLength()];
+    }
+
+    int getKeyLength() {
+        return cyclotomic == null ? 0 : cyclotomic.getDegree();
+    }
+
+    // The number of the grid's line just before the point, the lattice index of the region containing the point
+    int getLatticeIndex(double px, double py, int grid) {
+        return (int) Math.floor(px * cosTable[grid] + py * sinTable[grid] - offsets[grid]);
+    }
+
+    /**
+     * Builds the rhombus of the intersection of the line lineOne of the grid gridOne with the line lineTwo of gridTwo,
+     * the determinant of the grids tells in which order the regions go around the intersection.
+     * Returns false if a line of another grid goes through the intersection and the probed vertices are not a rhombus.
+     */
+    boolean build(double px, double py, int gridOne, int lineOne, int gridTwo, int lineTwo, double determinant) {
+        boolean isSingular = false;
+        for (int i = 0; i < symmetry; i++) {
+            lattice[i] = getLatticeIndex(px, py, i);
+            double position = px * cosTable[i] + py * sinTable[i] - offsets[i];
+            if (i != gridOne && i != gridTwo && Math.abs(position - Math.rint(position)) <= Multigrid.SMALL_EPSILON) {
+                isSingular = true;
+            }
+        }
+
+        for (int v = 0; v < TileStore.VERTEX_COUNT; v++) {
+            // the regions are (+, +), (-, +), (-, -), (+, -) counterclockwise if the second grid is counterclockwise
+            int region = determinant > 0 ? v : (TileStore.VERTEX_COUNT - v) % TileStore.VERTEX_COUNT;
+            if (isSingular) {
+                // the middle of the points SMALL_EPSILON away from the intersection across the two lines
+                int signOne = region == 0 || region == 3 ? 1 : -1;
+                int signTwo = region == 0 || region == 1 ? 1 : -1;
+                double qx = ((px + Multigrid.SMALL_EPSILON * signOne * cosTable[gridOne])
+                        + (px + Multigrid.SMALL_EPSILON * signTwo * cosTable[gridTwo])) / 2;
+                double qy = ((py + Multigrid.SMALL_EPSILON * signOne * sinTable[gridOne])
+                        + (py + Multigrid.SMALL_EPSILON * signTwo * sinTable[gridTwo])) / 2;
+                for (int i = 0; i < symmetry; i++) {
+                    lattice[i] = getLatticeIndex(qx, qy, i);
+                }
+            } else {
+                lattice[gridOne] = region == 0 || region == 3 ? lineOne : lineOne - 1;
+                lattice[gridTwo] = region == 0 || region == 1 ? lineTwo : lineTwo - 1;
+            }
+
+            int vertexIndex = 0;
+            for (int i = 0; i < symmetry; i++) {
+                vertexIndex += lattice[i];
+            }
+            indexes[v] = Math.abs(vertexIndex % symmetry);
+            System.arraycopy(lattice, 0, lattices, v * symmetry, symmetry);
+
+            if (cyclotomic != null) {
+                // the exact key gives the same coordinates for the same vertex without rounding
+                System.arraycopy(lattice, 0, remainder, 0, symmetry);
+                cyclotomic.reduce(remainder);
+                System.arraycopy(remainder, 0, keys, v * cyclotomic.getDegree(), cyclotomic.getDegree());
+                x[v] = cyclotomic.getX(keys, v * cyclotomic.getDegree());
+                y[v] = cyclotomic.getY(keys, v * cyclotomic.getDegree());
+            } else {
+                double xd = 0, yd = 0;
+                for (int i = 0; i < symmetry; i++) {
+                    xd += lattice[i] * cosTable[i];
+                    yd += lattice[i] * sinTable[i];
+                }
+                x[v] = Multigrid.roundWithSmallEpsilon(xd);
+                y[v] = Multigrid.roundWithSmallEpsilon(yd);
+            }
+        }
+
+        if (isSingular) {
+            for (int v = 0; v < TileStore.VERTEX_COUNT; v++) {
+                int w = (v + 1) % TileStore.VERTEX_COUNT;
+                if (!Multigrid.equalWithBigEpsilon(Math.hypot(x[w] - x[v], y[w] - y[v]), 1)) {
+                    return false;
+                }
+            }
+            angle = TileStore.getAngle(x[1] - x[0], y[1] - y[0], x[3] - x[0], y[3] - y[0], symmetry);
+            return true;
+        }
+        // the edges go along the unit vectors of the two grids, the angle between them is a multiple of PI / symmetry
+        angle = (2 * (gridTwo - gridOne)) % symmetry;
+        angle = Math.min(angle, symmetry - angle);
+        return true;
+    }
+
+    // Adds the last built rhombus to the store
+    int addTo(TileStore tileStore) {
+        return tileStore.add(x, y, indexes, cyclotomic == null ? null : keys, lattices,
+                angle, Multigrid.roundWithBigEpsilon(Math.sin(angle * Math.PI / symmetry)));
+    }
+
+    // Loads the vertices of the stored tile to check its bounds
+    RhombusBuilder load(TileStore tileStore, int tile) {
+        for (int v = 0; v < TileStore.VERTEX_COUNT; v++) {
+            x[v] = tileStore.getX(tile, v);
+            y[v] = tileStore.getY(tile, v);
+            indexes[v] = tileStore.getVertexIndex(tile, v);
+        }
+        return this;
+    }
+
+    // Tells if the bounds of the vertices overlap the window, any tile overlaps a null window
+    boolean overlaps(Rectangle2D window) {
+        if (window == null) {
+            return true;
+        }
+        double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE;
+        double maxX = -Double.MAX_VALUE, maxY = -Double.MAX_VALUE;
+        for (int v = 0; v < TileStore.VERTEX_COUNT; v++) {
+            minX = Math.min(minX, x[v]);
+            minY = Math.min(minY, y[v]);
+            maxX = Math.max(maxX, x[v]);
+            maxY = Math.max(maxY, y[v]);
+        }
+        return window.intersects(minX, minY, maxX - minX, maxY - minY);
+    }
+}
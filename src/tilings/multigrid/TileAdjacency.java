@@ -0,0 +1,185 @@
+package tilings.multigrid;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * The tiles sharing an edge in the compressed sparse row form:
+ * the neighbours of a tile are stored from getStart(tile) to getStart(tile + 1) in ascending order.
+ * <p>
+ * A segment of a grid line between two neighbouring intersections is dual to an edge of the tiling,
+ * so the tiles of consecutive intersections along a line share that edge.
+ * <p>
+ * The tiles around every vertex of the vertex table are kept in the same form, the tiles sharing a vertex
+ * with a tile are found through its four vertices. They include the tiles sharing an edge.
+ */
+public class TileAdjacency {
+    // "TADJ", the header of the binary file
+    private static final int MAGIC = 0x5441444A;
+    private static final int VERSION = 2;
+
+    private final int[] starts;
+    private final int[] neighbours;
+    // the tiles of every vertex in the ascending order
+    private final int[] vertexStarts;
+    private final int[] vertexTiles;
+    private final TileStore tileStore;
+
+    TileAdjacency(TileStore tileStore, int[][] lineIntersections, int[] intersectionTiles) {
+        this.tileStore = tileStore;
+        int tileCount = tileStore.size();
+        starts = new int[tileCount + 1];
+        for (int[] line : lineIntersections) {
+            for (int k = 0; k + 1 < line.length; k++) {
+                int tileOne = intersectionTiles[line[k]];
+                int tileTwo = intersectionTiles[line[k + 1]];
+                if (tileOne >= 0 && tileTwo >= 0) {
+                    starts[tileOne + 1]++;
+                    starts[tileTwo + 1]++;
+                }
+            }
+        }
+        for (int tile = 0; tile < tileCount; tile++) {
+            starts[tile + 1] += starts[tile];
+        }
+
+        neighbours = new int[starts[tileCount]];
+        int[] positions = Arrays.copyOf(starts, tileCount);
+        for (int[] line : lineIntersections) {
+            for (int k = 0; k + 1 < line.length; k++) {
+                int tileOne = intersectionTiles[line[k]];
+                int tileTwo = intersectionTiles[line[k + 1]];
+                if (tileOne >= 0 && tileTwo >= 0) {
+                    neighbours[positions[tileOne]++] = tileTwo;
+                    neighbours[positions[tileTwo]++] = tileOne;
+                }
+            }
+        }
+        for (int tile = 0; tile < tileCount; tile++) {
+            Arrays.sort(neighbours, starts[tile], starts[tile + 1]);
+        }
+
+        // the tiles are visited in the ascending order, so the tiles of every vertex are sorted
+        int vertexCount = tileStore.getVertexCount();
+        vertexStarts = new int[vertexCount + 1];
+        for (int tile = 0; tile < tileCount; tile++) {
+            for (int v = 0; v < TileStore.VERTEX_COUNT; v++) {
+                vertexStarts[tileStore.getVertexId(tile, v) + 1]++;
+            }
+        }
+        for (int vertex = 0; vertex < vertexCount; vertex++) {
+            vertexStarts[vertex + 1] += vertexStarts[vertex];
+        }
+        vertexTiles = new int[vertexStarts[vertexCount]];
+        int[] vertexPositions = Arrays.copyOf(vertexStarts, vertexCount);
+        for (int tile = 0; tile < tileCount; tile++) {
+            for (int v = 0; v < TileStore.VERTEX_COUNT; v++) {
+                vertexTiles[vertexPositions[tileStore.getVertexId(tile, v)]++] = tile;
+            }
+        }
+    }
+
+    public int getTileCount() {
+        return starts.length - 1;
+    }
+
+    // Every shared edge is counted once
+    public int getEdgeCount() {
+        return neighbours.length / 2;
+    }
+
+    public int getStart(int tile) {
+        return starts[tile];
+    }
+
+    public int getNeighbourCount(int tile) {
+        return starts[tile + 1] - starts[tile];
+    }
+
+    public int getNeighbour(int tile, int k) {
+        return neighbours[starts[tile] + k];
+    }
+
+    public int[] getNeighbours(int tile) {
+        return Arrays.copyOfRange(neighbours, starts[tile], starts[tile + 1]);
+    }
+
+    public boolean isNeighbour(int tile, int other) {
+        return Arrays.binarySearch(neighbours, starts[tile], starts[tile + 1], other) >= 0;
+    }
+
+    // The tiles having the vertex of the vertex table in the ascending order
+    public int[] getVertexTiles(int vertex) {
+        return Arrays.copyOfRange(vertexTiles, vertexStarts[vertex], vertexStarts[vertex + 1]);
+    }
+
+    // The other tiles sharing a vertex or an edge with the tile in the ascending order
+    public int[] getVertexNeighbours(int tile) {
+        int count = 0;
+        for (int v = 0; v < TileStore.VERTEX_COUNT; v++) {
+            int vertex = tileStore.getVertexId(tile, v);
+            count += vertexStarts[vertex + 1] - vertexStarts[vertex];
+        }
+        int[] tiles = new int[count];
+        count = 0;
+        for (int v = 0; v < TileStore.VERTEX_COUNT; v++) {
+            int vertex = tileStore.getVertexId(tile, v);
+            for (int i = vertexStarts[vertex]; i < vertexStarts[vertex + 1]; i++) {
+                tiles[count++] = vertexTiles[i];
+            }
+        }
+        Arrays.sort(tiles);
+        int distinctCount = 0;
+        for (int i = 0; i < count; i++) {
+            if (tiles[i] != tile && (distinctCount == 0 || tiles[distinctCount - 1] != tiles[i])) {
+                tiles[distinctCount++] = tiles[i];
+            }
+        }
+        return Arrays.copyOf(tiles, distinctCount);
+    }
+
+    public boolean isVertexNeighbour(int tile, int other) {
+        if (tile == other) {
+            return false;
+        }
+        for (int v = 0; v < TileStore.VERTEX_COUNT; v++) {
+            int vertex = tileStore.getVertexId(tile, v);
+            if (Arrays.binarySearch(vertexTiles, vertexStarts[vertex], vertexStarts[vertex + 1], other) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Writes the big-endian ints: magic, version, tile count, neighbour count,
+     * the tile count + 1 row starts and the neighbours,
+     * then the vertex count, the vertex tile count, the vertex count + 1 vertex starts and the tiles of the vertices.
+     */
+    public void write(Path path) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(getTileCount());
+            out.writeInt(neighbours.length);
+            for (int start : starts) {
+                out.writeInt(start);
+            }
+            for (int neighbour : neighbours) {
+                out.writeInt(neighbour);
+            }
+            out.writeInt(vertexStarts.length - 1);
+            out.writeInt(vertexTiles.length);
+            for (int start : vertexStarts) {
+                out.writeInt(start);
+            }
+            for (int tile : vertexTiles) {
+                out.writeInt(tile);
+            }
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package tilings.multigrid;
+
+import java.awt.geom.Rectangle2D;
+import java.util.Arrays;
+
+/**
+ * A uniform grid of square cells over the bounding boxes of the tiles of a finished store, it finds the tiles
+ * in a rectangle without visiting the others.
+ * <p>
+ * Every tile is kept in the cell of the lower corner of its bounding box, so a tile is in one cell only
+ * and a search looks at the cells up to the biggest tile size before the rectangle. The tiles of every cell
+ * follow each other in one array, the cell starts tell where.
+ */
+public class TileIndex {
+    // the side of a cell, a tile has the side 1
+    private static final double CELL_SIZE = 1;
+
+    private final TileStore tileStore;
+    private final double minX;
+    private final double minY;
+    private final int columnCount;
+    private final int rowCount;
+    // the biggest width and height of a tile bounding box
+    private final double tileWidth;
+    private final double tileHeight;
+    private final int[] cellStarts;
+    private final int[] cellTiles;
+
+    TileIndex(TileStore tileStore) {
+        this.tileStore = tileStore;
+        int size = tileStore.size();
+        double[] bounds = new double[4];
+        double left = Double.POSITIVE_INFINITY, top = Double.POSITIVE_INFINITY;
+        double right = Double.NEGATIVE_INFINITY, bottom = Double.NEGATIVE_INFINITY;
+        double width = 0, height = 0;
+        for (int tile = 0; tile < size; tile++) {
+            getBounds(tile, bounds);
+            left = Math.min(left, bounds[0]);
+            top = Math.min(top, bounds[1]);
+            right = Math.max(right, bounds[2]);
+            bottom = Math.max(bottom, bounds[3]);
+            width = Math.max(width, bounds[2] - bounds[0]);
+            height = Math.max(height, bounds[3] - bounds[1]);
+        }
+        if (size == 0) {
+            left = top = right = bottom = 0;
+        }
+        minX = left;
+        minY = top;
+        columnCount = (int) ((right - left) / CELL_SIZE) + 1;
+        rowCount = (int) ((bottom - top) / CELL_SIZE) + 1;
+        tileWidth = width;
+        tileHeight = height;
+
+        // counts the tiles of every cell, then places them by the running sums
+        int[] tileCells = new int[size];
+        cellStarts = new int[columnCount * rowCount + 1];
+        for (int tile = 0; tile < size; tile++) {
+            getBounds(tile, bounds);
+            tileCells[tile] = getRow(bounds[1]) * columnCount + getColumn(bounds[0]);
+            cellStarts[tileCells[tile] + 1]++;
+        }
+        for (int cell = 0; cell < columnCount * rowCount; cell++) {
+            cellStarts[cell + 1] += cellStarts[cell];
+        }
+        int[] cellEnds = Arrays.copyOf(cellStarts, columnCount * rowCount);
+        cellTiles = new int[size];
+        for (int tile = 0; tile < size; tile++) {
+            cellTiles[cellEnds[tileCells[tile]]++] = tile;
+        }
+    }
+
+    /**
+     * The tiles with the bounding box intersecting the rectangle in the ascending order,
+     * so they are painted in the same order as all tiles.
+     */
+    public int[] findTiles(Rectangle2D rectangle) {
+        int fromColumn = getColumn(rectangle.getMinX() - tileWidth);
+        int toColumn = getColumn(rectangle.getMaxX());
+        int fromRow = getRow(rectangle.getMinY() - tileHeight);
+        int toRow = getRow(rectangle.getMaxY());
+        double[] bounds = new double[4];
+        int[] tiles = new int[16];
+        int count = 0;
+        for (int row = fromRow; row <= toRow; row++) {
+            for (int cell = row * columnCount + fromColumn; cell <= row * columnCount + toColumn; cell++) {
+                for (int i = cellStarts[cell]; i < cellStarts[cell + 1]; i++) {
+                    int tile = cellTiles[i];
+                    getBounds(tile, bounds);
+                    if (bounds[0] <= rectangle.getMaxX() && bounds[2] >= rectangle.getMinX()
+                            && bounds[1] <= rectangle.getMaxY() && bounds[3] >= rectangle.getMinY()) {
+                        if (count == tiles.length) {
+                            tiles = Arrays.copyOf(tiles, 2 * count);
+                        }
+                        tiles[count++] = tile;
+                    }
+                }
+            }
+        }
+        tiles = Arrays.copyOf(tiles, count);
+        Arrays.sort(tiles);
+        return tiles;
+    }
+
+    // The column of the x clamped to the grid
+    private int getColumn(double x) {
+        return (int) Math.max(0, Math.min(columnCount - 1, Math.floor((x - minX) / CELL_SIZE)));
+    }
+
+    private int getRow(double y) {
+        return (int) Math.max(0, Math.min(rowCount - 1, Math.floor((y - minY) / CELL_SIZE)));
+    }
+
+    // Puts the min x, min y, max x and max y of the tile
+    private void getBounds(int tile, double[] bounds) {
+        bounds[0] = bounds[1] = Double.POSITIVE_INFINITY;
+        bounds[2] = bounds[3] = Double.NEGATIVE_INFINITY;
+        for (int v = 0; v < TileStore.VERTEX_COUNT; v++) {
+            double x = tileStore.getX(tile, v);
+            double y = tileStore.getY(tile, v);
+            bounds[0] = Math.min(bounds[0], x);
+            bounds[1] = Math.min(bounds[1], y);
+            bounds[2] = Math.max(bounds[2], x);
+            bounds[3] = Math.max(bounds[3], y);
+        }
+    }
+}
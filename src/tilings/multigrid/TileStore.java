@@ -0,0 +1,696 @@
+package tilings.multigrid;
+
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.util.*;
+
+/**
+ * Keeps the rhombi in flat arrays, four vertices per tile.
+ * The vertices of a tile are stored in the GridTile order, the vertex with the bigger unique index goes first.
+ * <p>
+ * While the tiles are added every tile keeps its own vertices. The finished store has a table of distinct vertices
+ * with their indexes, and the tiles refer to them by the vertex id.
+ * <p>
+ * An exact store keeps the Cyclotomic key of every vertex, the vertices are told apart by the keys.
+ * The area classes are told apart by the rhombus angle, the area is kept only to be shown.
+ * <p>
+ * A store with the lattice keeps the lift of every tile to the lattice Z^symmetry: the vertices of a rhombus
+ * are K, K + e_i, K + e_j and K + e_i + e_j, the tile is identified by the lattice vector K and the grids i < j.
+ * <p>
+ * The finished store keeps its columns in buffers, so a store can be mapped from a file without copying, see TilingFile.
+ */
+public class TileStore {
+    static final int VERTEX_COUNT = 4;
+
+    // the vertices of every tile until the store is finished
+    private double[] xArray;
+    private double[] yArray;
+    private byte[] vertexIndexArray;
+    private int[] keyArray;
+    private int[] areaClassArray;
+    private int size;
+    private final int keyLength;
+
+    // the lattice vector K, the grids i and j and two bits per vertex which tell if it adds e_i and e_j
+    private int[] latticeArray;
+    private byte[] gridArray;
+    private byte[] cornerArray;
+    private final int latticeLength;
+
+    // the vertex table of the finished store
+    private DoubleBuffer vertexXBuffer;
+    private DoubleBuffer vertexYBuffer;
+    private ByteBuffer indexOfVertexBuffer;
+    private IntBuffer vertexKeyBuffer;
+    private IntBuffer tileVertexBuffer;
+    // the tiles of the finished store
+    private IntBuffer areaClassBuffer;
+    private IntBuffer latticeBuffer;
+    private ByteBuffer gridBuffer;
+    private ByteBuffer cornerBuffer;
+    // the tiles of the finished store with the lattice in an open addressing hash table
+    private IntBuffer tileSlotBuffer;
+
+    private double[] areaTable = new double[0];
+    // the acute angle of the rhombi of every area class, -1 if it is not known
+    private int[] angleTable = new int[0];
+
+    private final List<GridTile> tileList = new TileList();
+    // the index of the finished store, built when it is asked for
+    private TileIndex tileIndex;
+
+    TileStore(int expectedSize) {
+        this(expectedSize, 0, 0);
+    }
+
+    // The key length is the Cyclotomic degree for an exact store or 0, the lattice length is the symmetry or 0
+    TileStore(int expectedSize, int keyLength, int latticeLength) {
+        this.keyLength = keyLength;
+        this.latticeLength = latticeLength;
+        int capacity = Math.max(1, expectedSize);
+        xArray = new double[capacity * VERTEX_COUNT];
+        yArray = new double[capacity * VERTEX_COUNT];
+        vertexIndexArray = new byte[capacity * VERTEX_COUNT];
+        keyArray = new int[capacity * VERTEX_COUNT * keyLength];
+        areaClassArray = new int[capacity];
+        latticeArray = new int[capacity * latticeLength];
+        gridArray = new byte[latticeLength > 0 ? capacity * 2 : 0];
+        cornerArray = new byte[latticeLength > 0 ? capacity : 0];
+    }
+
+    // The finished store with the columns and the tables of the area classes
+    TileStore(int size, int keyLength, int latticeLength, Columns columns, double[] areaTable, int[] angleTable) {
+        this.size = size;
+        this.keyLength = keyLength;
+        this.latticeLength = latticeLength;
+        this.areaTable = areaTable;
+        this.angleTable = angleTable;
+        vertexXBuffer = columns.vertexX();
+        vertexYBuffer = columns.vertexY();
+        indexOfVertexBuffer = columns.indexOfVertex();
+        vertexKeyBuffer = columns.vertexKeys();
+        tileVertexBuffer = columns.tileVertices();
+        areaClassBuffer = columns.areaClasses();
+        latticeBuffer = columns.lattices();
+        gridBuffer = columns.grids();
+        cornerBuffer = columns.corners();
+        tileSlotBuffer = columns.tileSlots();
+    }
+
+    int add(List<GridPoint> vertexList, List<Integer> indexList) {
+        if (indexList.size() != vertexList.size()) {
+            throw new RuntimeException("Index count does not match");
+        }
+        if (vertexList.size() != VERTEX_COUNT) {
+            throw new RuntimeException("Expected four vertices");
+        }
+        double[] x = new double[VERTEX_COUNT];
+        double[] y = new double[VERTEX_COUNT];
+        int[] indexes = new int[VERTEX_COUNT];
+        for (int v = 0; v < VERTEX_COUNT; v++) {
+            x[v] = vertexList.get(v).x();
+            y[v] = vertexList.get(v).y();
+            indexes[v] = indexList.get(v);
+        }
+        double d1 = vertexList.get(0).getDistance(vertexList.get(2));
+        double d2 = vertexList.get(1).getDistance(vertexList.get(3));
+        return add(x, y, indexes, null, null, -1, Multigrid.roundWithBigEpsilon(.5 * d1 * d2));
+    }
+
+    /**
+     * Adds the tile with the vertices in the arrays, the arrays are not kept.
+     * The keys are the Cyclotomic keys of the vertices one after another or null if the store is not exact,
+     * the lattices are the lattice vectors of the vertices one after another or null if the store has no lattice,
+     * the angle is the acute angle of the rhombus in the steps of PI / symmetry.
+     */
+    int add(double[] x, double[] y, int[] indexes, int[] keys, int[] lattices, int angle, double area) {
+        // an index is unique if it occurs an odd number of times
+        int uniqueCount = 0;
+        int first = -1;
+        for (int v = 0; v < VERTEX_COUNT; v++) {
+            int count = 0;
+            boolean isFirstOccurrence = true;
+            for (int w = 0; w < VERTEX_COUNT; w++) {
+                if (indexes[w] == indexes[v]) {
+                    count++;
+                    isFirstOccurrence &= w >= v;
+                }
+            }
+            if (count % 2 == 1 && isFirstOccurrence) {
+                uniqueCount++;
+                if (first == -1 || indexes[v] > indexes[first]) {
+                    first = v;
+                }
+            }
+        }
+
+        if (uniqueCount != 2) {
+            throw new RuntimeException("Expected two unique indexes");
+        }
+
+        if (size == areaClassArray.length) {
+            grow();
+        }
+        int tile = size++;
+        for (int v = 0; v < VERTEX_COUNT; v++) {
+            int from = (first + v) % VERTEX_COUNT;
+            xArray[tile * VERTEX_COUNT + v] = x[from];
+            yArray[tile * VERTEX_COUNT + v] = y[from];
+            vertexIndexArray[tile * VERTEX_COUNT + v] = (byte) indexes[from];
+            if (keyLength > 0) {
+                System.arraycopy(keys, from * keyLength, keyArray, (tile * VERTEX_COUNT + v) * keyLength, keyLength);
+            }
+        }
+        if (latticeLength > 0) {
+            setLattice(tile, lattices, first);
+        }
+        areaClassArray[tile] = getAreaClass(angle, area);
+        return tile;
+    }
+
+    // The lattice vectors of the vertices differ only in the components of the two crossing grids
+    private void setLattice(int tile, int[] lattices, int first) {
+        int gridOne = -1;
+        int gridTwo = -1;
+        for (int c = 0; c < latticeLength; c++) {
+            int min = lattices[c];
+            int max = lattices[c];
+            for (int v = 1; v < VERTEX_COUNT; v++) {
+                min = Math.min(min, lattices[v * latticeLength + c]);
+                max = Math.max(max, lattices[v * latticeLength + c]);
+            }
+            if (max - min > 1 || max != min && gridTwo != -1) {
+                throw new RuntimeException("Vertices are not a lattice rhombus");
+            }
+            if (max != min) {
+                if (gridOne == -1) {
+                    gridOne = c;
+                } else {
+                    gridTwo = c;
+                }
+            }
+            latticeArray[tile * latticeLength + c] = min;
+        }
+        if (gridTwo == -1) {
+            throw new RuntimeException("Vertices are not a lattice rhombus");
+        }
+        int corners = 0;
+        for (int v = 0; v < VERTEX_COUNT; v++) {
+            int from = (first + v) % VERTEX_COUNT;
+            int one = lattices[from * latticeLength + gridOne] - latticeArray[tile * latticeLength + gridOne];
+            int two = lattices[from * latticeLength + gridTwo] - latticeArray[tile * latticeLength + gridTwo];
+            corners |= (one | two << 1) << 2 * v;
+        }
+        gridArray[tile * 2] = (byte) gridOne;
+        gridArray[tile * 2 + 1] = (byte) gridTwo;
+        cornerArray[tile] = (byte) corners;
+    }
+
+    // Copies the tile of a finished store
+    int addFrom(TileStore other, int otherTile) {
+        if (size == areaClassArray.length) {
+            grow();
+        }
+        int tile = size++;
+        for (int v = 0; v < VERTEX_COUNT; v++) {
+            xArray[tile * VERTEX_COUNT + v] = other.getX(otherTile, v);
+            yArray[tile * VERTEX_COUNT + v] = other.getY(otherTile, v);
+            vertexIndexArray[tile * VERTEX_COUNT + v] = (byte) other.getVertexIndex(otherTile, v);
+            other.vertexKeyBuffer.get(other.getVertexId(otherTile, v) * keyLength,
+                    keyArray, (tile * VERTEX_COUNT + v) * keyLength, keyLength);
+        }
+        if (latticeLength > 0) {
+            other.latticeBuffer.get(otherTile * latticeLength, latticeArray, tile * latticeLength, latticeLength);
+            gridArray[tile * 2] = other.gridBuffer.get(otherTile * 2);
+            gridArray[tile * 2 + 1] = other.gridBuffer.get(otherTile * 2 + 1);
+            cornerArray[tile] = other.cornerBuffer.get(otherTile);
+        }
+        areaClassArray[tile] = getAreaClass(other.getAngle(otherTile), other.getArea(otherTile));
+        return tile;
+    }
+
+    // Appends the tiles of a store which is not finished
+    void addAll(TileStore other) {
+        while (areaClassArray.length < size + other.size) {
+            grow();
+        }
+        System.arraycopy(other.xArray, 0, xArray, size * VERTEX_COUNT, other.size * VERTEX_COUNT);
+        System.arraycopy(other.yArray, 0, yArray, size * VERTEX_COUNT, other.size * VERTEX_COUNT);
+        System.arraycopy(other.vertexIndexArray, 0, vertexIndexArray, size * VERTEX_COUNT, other.size * VERTEX_COUNT);
+        System.arraycopy(other.keyArray, 0, keyArray, size * VERTEX_COUNT * keyLength, other.size * VERTEX_COUNT * keyLength);
+        System.arraycopy(other.latticeArray, 0, latticeArray, size * latticeLength, other.size * latticeLength);
+        if (latticeLength > 0) {
+            System.arraycopy(other.gridArray, 0, gridArray, size * 2, other.size * 2);
+            System.arraycopy(other.cornerArray, 0, cornerArray, size, other.size);
+        }
+        for (int tile = 0; tile < other.size; tile++) {
+            int otherClass = other.areaClassArray[tile];
+            areaClassArray[size + tile] = getAreaClass(other.angleTable[otherClass], other.areaTable[otherClass]);
+        }
+        size += other.size;
+    }
+
+    // Renumbers the area classes in the ascending order of areas and releases the unused capacity
+    void finish() {
+        int[] classMap = new int[areaTable.length];
+        double[] sortedAreas = new double[areaTable.length];
+        int[] sortedAngles = new int[areaTable.length];
+        for (int i = 0; i < areaTable.length; i++) {
+            for (int j = 0; j < areaTable.length; j++) {
+                if (areaTable[j] < areaTable[i] || areaTable[j] == areaTable[i] && j < i) {
+                    classMap[i]++;
+                }
+            }
+            sortedAreas[classMap[i]] = areaTable[i];
+            sortedAngles[classMap[i]] = angleTable[i];
+        }
+        for (int tile = 0; tile < size; tile++) {
+            areaClassArray[tile] = classMap[areaClassArray[tile]];
+        }
+        areaTable = sortedAreas;
+        angleTable = sortedAngles;
+        areaClassBuffer = IntBuffer.wrap(Arrays.copyOf(areaClassArray, size));
+        latticeBuffer = IntBuffer.wrap(Arrays.copyOf(latticeArray, size * latticeLength));
+        gridBuffer = ByteBuffer.wrap(Arrays.copyOf(gridArray, latticeLength > 0 ? size * 2 : 0));
+        cornerBuffer = ByteBuffer.wrap(Arrays.copyOf(cornerArray, latticeLength > 0 ? size : 0));
+        tileSlotBuffer = IntBuffer.wrap(latticeLength > 0 ? createTileTable() : new int[0]);
+
+        createVertexTable();
+        xArray = null;
+        yArray = null;
+        vertexIndexArray = null;
+        keyArray = null;
+        areaClassArray = null;
+        latticeArray = null;
+        gridArray = null;
+        cornerArray = null;
+    }
+
+    // The equal vertices of the tiles have the same coordinates or keys, they are found with an open addressing hash table
+    private void createVertexTable() {
+        int capacity = Integer.highestOneBit(Math.max(1, size * VERTEX_COUNT)) * 4;
+        int[] slots = new int[capacity];
+        Arrays.fill(slots, -1);
+        double[] vertexX = new double[size * VERTEX_COUNT];
+        double[] vertexY = new double[size * VERTEX_COUNT];
+        byte[] indexOfVertex = new byte[size * VERTEX_COUNT];
+        int[] vertexKeys = new int[size * VERTEX_COUNT * keyLength];
+        int[] tileVertices = new int[size * VERTEX_COUNT];
+        int vertexCount = 0;
+        for (int i = 0; i < size * VERTEX_COUNT; i++) {
+            int slot = vertexHash(i) & (capacity - 1);
+            while (slots[slot] != -1 && !isSameVertex(i, slots[slot], vertexX, vertexY, indexOfVertex, vertexKeys)) {
+                slot = (slot + 1) & (capacity - 1);
+            }
+            if (slots[slot] == -1) {
+                slots[slot] = vertexCount;
+                vertexX[vertexCount] = xArray[i];
+                vertexY[vertexCount] = yArray[i];
+                indexOfVertex[vertexCount] = vertexIndexArray[i];
+                System.arraycopy(keyArray, i * keyLength, vertexKeys, vertexCount * keyLength, keyLength);
+                vertexCount++;
+            }
+            tileVertices[i] = slots[slot];
+        }
+        vertexXBuffer = DoubleBuffer.wrap(Arrays.copyOf(vertexX, vertexCount));
+        vertexYBuffer = DoubleBuffer.wrap(Arrays.copyOf(vertexY, vertexCount));
+        indexOfVertexBuffer = ByteBuffer.wrap(Arrays.copyOf(indexOfVertex, vertexCount));
+        vertexKeyBuffer = IntBuffer.wrap(Arrays.copyOf(vertexKeys, vertexCount * keyLength));
+        tileVertexBuffer = IntBuffer.wrap(tileVertices);
+    }
+
+    private boolean isSameVertex(int i, int vertex, double[] vertexX, double[] vertexY, byte[] indexOfVertex, int[] vertexKeys) {
+        if (indexOfVertex[vertex] != vertexIndexArray[i]) {
+            return false;
+        }
+        if (keyLength > 0) {
+            return Arrays.equals(keyArray, i * keyLength, (i + 1) * keyLength,
+                    vertexKeys, vertex * keyLength, (vertex + 1) * keyLength);
+        }
+        return Double.compare(vertexX[vertex], xArray[i]) == 0 && Double.compare(vertexY[vertex], yArray[i]) == 0;
+    }
+
+    private int vertexHash(int i) {
+        long key = vertexIndexArray[i];
+        if (keyLength > 0) {
+            for (int k = i * keyLength; k < (i + 1) * keyLength; k++) {
+                key = key * 0x9E3779B97F4A7C15L + keyArray[k];
+            }
+        } else {
+            key = key * 0x9E3779B97F4A7C15L + Double.doubleToLongBits(xArray[i]);
+            key = key * 0x9E3779B97F4A7C15L + Double.doubleToLongBits(yArray[i]);
+        }
+        key ^= key >>> 29;
+        return (int) (key ^ (key >>> 32));
+    }
+
+    private int[] createTileTable() {
+        int capacity = Integer.highestOneBit(Math.max(1, size)) * 4;
+        int[] tileSlots = new int[capacity];
+        Arrays.fill(tileSlots, -1);
+        for (int tile = 0; tile < size; tile++) {
+            int slot = getTileHash(tile) & (capacity - 1);
+            while (tileSlots[slot] != -1) {
+                slot = (slot + 1) & (capacity - 1);
+            }
+            tileSlots[slot] = tile;
+        }
+        return tileSlots;
+    }
+
+    private static int tileHash(IntBuffer lattice, int offset, int length, int gridOne, int gridTwo) {
+        long key = gridOne * 128L + gridTwo;
+        for (int c = offset; c < offset + length; c++) {
+            key = key * 0x9E3779B97F4A7C15L + lattice.get(c);
+        }
+        key ^= key >>> 29;
+        return (int) (key ^ (key >>> 32));
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public double getX(int tile, int vertex) {
+        return vertexXBuffer.get(tileVertexBuffer.get(tile * VERTEX_COUNT + vertex));
+    }
+
+    public double getY(int tile, int vertex) {
+        return vertexYBuffer.get(tileVertexBuffer.get(tile * VERTEX_COUNT + vertex));
+    }
+
+    public GridPoint getPoint(int tile, int vertex) {
+        return new GridPoint(getX(tile, vertex), getY(tile, vertex));
+    }
+
+    public int getVertexIndex(int tile, int vertex) {
+        return indexOfVertexBuffer.get(tileVertexBuffer.get(tile * VERTEX_COUNT + vertex));
+    }
+
+    // The id of the tile's vertex in the vertex table, the tiles sharing a vertex have the same id
+    public int getVertexId(int tile, int vertex) {
+        return tileVertexBuffer.get(tile * VERTEX_COUNT + vertex);
+    }
+
+    public int getVertexCount() {
+        return vertexXBuffer.limit();
+    }
+
+    public double getVertexX(int vertexId) {
+        return vertexXBuffer.get(vertexId);
+    }
+
+    public double getVertexY(int vertexId) {
+        return vertexYBuffer.get(vertexId);
+    }
+
+    public GridPoint getVertexPoint(int vertexId) {
+        return new GridPoint(getVertexX(vertexId), getVertexY(vertexId));
+    }
+
+    public int getIndexOfVertex(int vertexId) {
+        return indexOfVertexBuffer.get(vertexId);
+    }
+
+    public boolean isExact() {
+        return keyLength > 0;
+    }
+
+    // The Cyclotomic key of the vertex in an exact store
+    public int[] getVertexKey(int vertexId) {
+        int[] key = new int[keyLength];
+        vertexKeyBuffer.get(vertexId * keyLength, key);
+        return key;
+    }
+
+    public boolean hasLattice() {
+        return latticeLength > 0;
+    }
+
+    public int getLatticeLength() {
+        return latticeLength;
+    }
+
+    // The component of the lattice vector K of the tile, the vertex with the smaller line numbers of both grids
+    public int getTileLattice(int tile, int component) {
+        return latticeBuffer.get(tile * latticeLength + component);
+    }
+
+    // The component of the lattice vector of the tile's vertex
+    public int getLattice(int tile, int vertex, int component) {
+        int corner = cornerBuffer.get(tile) >> 2 * vertex;
+        int k = latticeBuffer.get(tile * latticeLength + component);
+        if (component == gridBuffer.get(tile * 2)) {
+            k += corner & 1;
+        } else if (component == gridBuffer.get(tile * 2 + 1)) {
+            k += corner >> 1 & 1;
+        }
+        return k;
+    }
+
+    // The grid of the tile's edges with the smaller number
+    public int getGridOne(int tile) {
+        return gridBuffer.get(tile * 2);
+    }
+
+    public int getGridTwo(int tile) {
+        return gridBuffer.get(tile * 2 + 1);
+    }
+
+    public int getTileHash(int tile) {
+        return tileHash(latticeBuffer, tile * latticeLength, latticeLength, getGridOne(tile), getGridTwo(tile));
+    }
+
+    // The tiles of the stores with the lattice are the same if they have the same K and grids
+    public boolean isSameTile(int tile, TileStore other, int otherTile) {
+        if (latticeLength != other.latticeLength
+                || getGridOne(tile) != other.getGridOne(otherTile) || getGridTwo(tile) != other.getGridTwo(otherTile)) {
+            return false;
+        }
+        for (int c = 0; c < latticeLength; c++) {
+            if (getTileLattice(tile, c) != other.getTileLattice(otherTile, c)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Returns the tile with the lattice vector K and the grids or -1 if the finished store has no such tile
+    public int indexOfTile(int[] lattice, int gridOne, int gridTwo) {
+        if (latticeLength == 0 || lattice.length != latticeLength) {
+            return -1;
+        }
+        int capacity = tileSlotBuffer.limit();
+        int slot = tileHash(IntBuffer.wrap(lattice), 0, latticeLength, gridOne, gridTwo) & (capacity - 1);
+        while (tileSlotBuffer.get(slot) != -1) {
+            int tile = tileSlotBuffer.get(slot);
+            if (getGridOne(tile) == gridOne && getGridTwo(tile) == gridTwo && hasTileLattice(tile, lattice)) {
+                return tile;
+            }
+            slot = (slot + 1) & (capacity - 1);
+        }
+        return -1;
+    }
+
+    private boolean hasTileLattice(int tile, int[] lattice) {
+        for (int c = 0; c < latticeLength; c++) {
+            if (getTileLattice(tile, c) != lattice[c]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // The sum of the vertex indexes of the tile
+    public int getIndexSum(int tile) {
+        int sum = 0;
+        for (int v = 0; v < VERTEX_COUNT; v++) {
+            sum += getVertexIndex(tile, v);
+        }
+        return sum;
+    }
+
+    public int getAreaClass(int tile) {
+        return areaClassBuffer.get(tile);
+    }
+
+    public double getArea(int tile) {
+        return areaTable[getAreaClass(tile)];
+    }
+
+    public double getAreaOfClass(int areaClass) {
+        return areaTable[areaClass];
+    }
+
+    public int getAreaClassCount() {
+        return areaTable.length;
+    }
+
+    // The acute angle of the rhombus in the steps of PI / symmetry, -1 if it is not known
+    public int getAngle(int tile) {
+        return angleTable[getAreaClass(tile)];
+    }
+
+    public int getAngleOfClass(int areaClass) {
+        return angleTable[areaClass];
+    }
+
+    // The acute angle between the edges of the rhombus in the steps of PI / symmetry
+    static int getAngle(double ax, double ay, double bx, double by, int symmetry) {
+        int angle = (int) Math.round(Math.atan2(Math.abs(ax * by - ay * bx), ax * bx + ay * by) * symmetry / Math.PI);
+        return Math.min(angle, symmetry - angle);
+    }
+
+    // The distinct sorted vertex indices of the tiles, they are packed into an int to find the distinct ones
+    Set<List<Integer>> createVertexIndexSet() {
+        Map<Integer, List<Integer>> indexListMap = new HashMap<>();
+        int[] indices = new int[VERTEX_COUNT];
+        for (int tile = 0; tile < size; tile++) {
+            int key = 0;
+            for (int v = 0; v < VERTEX_COUNT; v++) {
+                indices[v] = getVertexIndex(tile, v);
+            }
+            Arrays.sort(indices);
+            for (int index : indices) {
+                key = key * 256 + index;
+            }
+            if (!indexListMap.containsKey(key)) {
+                List<Integer> indexList = new ArrayList<>();
+                for (int index : indices) {
+                    indexList.add(index);
+                }
+                indexListMap.put(key, indexList);
+            }
+        }
+        return new HashSet<>(indexListMap.values());
+    }
+
+    // The biggest coordinate of the vertices, not less than 0
+    double getTilingRadius() {
+        double tilingRadius = 0;
+        for (int vertex = 0; vertex < getVertexCount(); vertex++) {
+            tilingRadius = Math.max(tilingRadius, Math.max(getVertexX(vertex), getVertexY(vertex)));
+        }
+        return tilingRadius;
+    }
+
+    List<Double> createAreaList() {
+        List<Double> areaList = new ArrayList<>();
+        for (int i = 0; i < getAreaClassCount(); i++) {
+            areaList.add(getAreaOfClass(i));
+        }
+        return Collections.unmodifiableList(areaList);
+    }
+
+    /**
+     * Tells if the finished stores with the lattice have the same tiles with the same vertices, the order of the tiles may differ.
+     */
+    public boolean hasSameTiles(TileStore other) {
+        if (size != other.size || latticeLength == 0 || latticeLength != other.latticeLength) {
+            return false;
+        }
+        int[] lattice = new int[latticeLength];
+        for (int tile = 0; tile < size; tile++) {
+            latticeBuffer.get(tile * latticeLength, lattice);
+            int otherTile = other.indexOfTile(lattice, getGridOne(tile), getGridTwo(tile));
+            if (otherTile == -1 || getAngle(tile) != other.getAngle(otherTile)) {
+                return false;
+            }
+            for (int v = 0; v < VERTEX_COUNT; v++) {
+                if (Double.compare(getX(tile, v), other.getX(otherTile, v)) != 0
+                        || Double.compare(getY(tile, v), other.getY(otherTile, v)) != 0
+                        || getVertexIndex(tile, v) != other.getVertexIndex(otherTile, v)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    public GridTile getTile(int tile) {
+        Objects.checkIndex(tile, size);
+        return new GridTile(this, tile);
+    }
+
+    /**
+     * The spatial index of the tiles of the finished store, it is built once.
+     */
+    public synchronized TileIndex getTileIndex() {
+        if (tileIndex == null) {
+            tileIndex = new TileIndex(this);
+        }
+        return tileIndex;
+    }
+
+    // GridTile views of the stored tiles, created on request
+    public List<GridTile> asList() {
+        return tileList;
+    }
+
+    // The rhombi with a known angle are told apart by the angle, the others by the area
+    private int getAreaClass(int angle, double area) {
+        for (int i = 0; i < areaTable.length; i++) {
+            if (angleTable[i] == angle && (angle != -1 || areaTable[i] == area)) {
+                return i;
+            }
+        }
+        areaTable = Arrays.copyOf(areaTable, areaTable.length + 1);
+        areaTable[areaTable.length - 1] = area;
+        angleTable = Arrays.copyOf(angleTable, angleTable.length + 1);
+        angleTable[angleTable.length - 1] = angle;
+        return areaTable.length - 1;
+    }
+
+    // The columns of a finished store, the tables of the area classes are kept apart
+    Columns getColumns() {
+        return new Columns(vertexXBuffer, vertexYBuffer, indexOfVertexBuffer, vertexKeyBuffer, tileVertexBuffer,
+                areaClassBuffer, latticeBuffer, gridBuffer, cornerBuffer, tileSlotBuffer);
+    }
+
+    int getKeyLength() {
+        return keyLength;
+    }
+
+    double[] getAreaTable() {
+        return areaTable.clone();
+    }
+
+    int[] getAngleTable() {
+        return angleTable.clone();
+    }
+
+    private void grow() {
+        int capacity = areaClassArray.length * 2;
+        xArray = Arrays.copyOf(xArray, capacity * VERTEX_COUNT);
+        yArray = Arrays.copyOf(yArray, capacity * VERTEX_COUNT);
+        vertexIndexArray = Arrays.copyOf(vertexIndexArray, capacity * VERTEX_COUNT);
+        keyArray = Arrays.copyOf(keyArray, capacity * VERTEX_COUNT * keyLength);
+        areaClassArray = Arrays.copyOf(areaClassArray, capacity);
+        latticeArray = Arrays.copyOf(latticeArray, capacity * latticeLength);
+        if (latticeLength > 0) {
+            gridArray = Arrays.copyOf(gridArray, capacity * 2);
+            cornerArray = Arrays.copyOf(cornerArray, capacity);
+        }
+    }
+
+    private class TileList extends AbstractList<GridTile> implements RandomAccess {
+        @Override
+        public GridTile get(int index) {
+            return getTile(index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    /**
+     * The columns of a finished store, the buffers are read with the absolute get methods.
+     */
+    record Columns(DoubleBuffer vertexX, DoubleBuffer vertexY, ByteBuffer indexOfVertex, IntBuffer vertexKeys,
+                   IntBuffer tileVertices, IntBuffer areaClasses, IntBuffer lattices, ByteBuffer grids,
+                   ByteBuffer corners, IntBuffer tileSlots) {
+    }
+}
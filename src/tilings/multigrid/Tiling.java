@@ -0,0 +1,25 @@
+package tilings.multigrid;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The rhombic tiling built by one of the engines, see TilingEngine.
+ */
+public interface Tiling {
+    int getSymmetry();
+
+    List<Double> getOffsetList();
+
+    TileStore getTileStore();
+
+    List<GridTile> getTileList();
+
+    List<Double> getTileAreaList();
+
+    Set<List<Integer>> getVertexIndexSet();
+
+    double getTilingRadius();
+
+    boolean isExact();
+}
@@ -0,0 +1,64 @@
+package tilings.multigrid;
+
+import java.awt.geom.Rectangle2D;
+import java.util.List;
+
+/**
+ * The ways to build a tiling, they give the same tiles in a different order.
+ * The multigrid finds the intersections of the grid lines, the cut and project method skips them,
+ * so it is usually faster for the big patches.
+ */
+public enum TilingEngine {
+    MULTIGRID {
+        @Override
+        public Tiling create(int symmetry, int gridRadius, List<Double> offsetList, double gridInset, int parallelism, boolean exact) {
+            return new Multigrid(symmetry, gridRadius, offsetList, gridInset, parallelism, exact);
+        }
+
+        @Override
+        public Tiling create(int symmetry, List<Double> offsetList, Rectangle2D window, int parallelism, boolean exact) {
+            return new Multigrid(symmetry, offsetList, window, parallelism, exact);
+        }
+    },
+    CUT_AND_PROJECT {
+        @Override
+        public Tiling create(int symmetry, int gridRadius, List<Double> offsetList, double gridInset, int parallelism, boolean exact) {
+            return new CutAndProject(symmetry, gridRadius, offsetList, gridInset, parallelism, exact);
+        }
+
+        @Override
+        public Tiling create(int symmetry, List<Double> offsetList, Rectangle2D window, int parallelism, boolean exact) {
+            return new CutAndProject(symmetry, offsetList, window, parallelism, exact);
+        }
+    };
+
+    public abstract Tiling create(int symmetry, int gridRadius, List<Double> offsetList, double gridInset, int parallelism, boolean exact);
+
+    // Creates the part of the infinite tiling which covers the window
+    public abstract Tiling create(int symmetry, List<Double> offsetList, Rectangle2D window, int parallelism, boolean exact);
+
+    /**
+     * Builds the tiling with both engines and tells if they have the same tiles.
+     */
+    public static boolean crossCheck(int symmetry, int gridRadius, List<Double> offsetList, double gridInset, int parallelism) {
+        TileStore one = MULTIGRID.create(symmetry, gridRadius, offsetList, gridInset, parallelism, false).getTileStore();
+        TileStore two = CUT_AND_PROJECT.create(symmetry, gridRadius, offsetList, gridInset, parallelism, false).getTileStore();
+        return one.hasSameTiles(two);
+    }
+
+    /**
+     * Builds the multigrid and tells if it has a tile for every intersection with a rhombus probed around it,
+     * like the multigrid built by probing every intersection. The degenerate offsets put the lines of other grids
+     * through the intersections, the tiles of such points are probed by both builds.
+     */
+    public static boolean probeCheck(int symmetry, int gridRadius, List<Double> offsetList, double gridInset) {
+        Multigrid multigrid = new Multigrid(symmetry, gridRadius, offsetList, gridInset);
+        int count = 0;
+        for (List<GridPoint> dualList : multigrid.getDualMap().values()) {
+            if (multigrid.isRhombus(dualList)) {
+                count++;
+            }
+        }
+        return count == multigrid.getTileStore().size();
+    }
+}
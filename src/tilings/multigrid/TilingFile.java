@@ -0,0 +1,326 @@
+package tilings.multigrid;
+
+import java.awt.geom.Rectangle2D;
+import java.io.IOException;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * A finished tiling saved in a binary file, the file is mapped when it is opened, so the tiles are not read or copied
+ * and a big tiling opens in a few milliseconds. The mapping is read only, the processes opening the same file share it.
+ * <p>
+ * The file is little endian. The header has the parameters of the tiling, its area classes and vertex index sets,
+ * and the offset and length of every column. The columns are the ones of the finished TileStore: the vertices,
+ * their indexes and Cyclotomic keys, the vertices of the tiles, their area classes, the lattice vectors,
+ * the grids giving the orientation, the corners and the hash table of the tiles. Every column starts at 8 bytes.
+ */
+public class TilingFile implements Tiling {
+    private static final int MAGIC = 0x4654474D;
+    private static final int VERSION = 1;
+    private static final int BLOCK_SIZE = 1 << 16;
+
+    private final String source;
+    private final int symmetry;
+    private final boolean exact;
+    private final int gridRadius;
+    private final double gridInset;
+    private final int generations;
+    private final Rectangle2D window;
+    private final double tilingRadius;
+    private final List<Double> offsetList;
+    private final Set<List<Integer>> vertexIndexSet;
+    private final TileStore tileStore;
+    private final List<Double> tileAreaList;
+
+    private TilingFile(ByteBuffer header, FileChannel channel) throws IOException {
+        source = getString(header);
+        symmetry = header.getInt();
+        exact = header.get() != 0;
+        gridRadius = header.getInt();
+        gridInset = header.getDouble();
+        generations = header.getInt();
+        boolean hasWindow = header.get() != 0;
+        Rectangle2D.Double rectangle = new Rectangle2D.Double(header.getDouble(), header.getDouble(), header.getDouble(), header.getDouble());
+        window = hasWindow ? rectangle : null;
+        tilingRadius = header.getDouble();
+        List<Double> offsets = new ArrayList<>();
+        for (int i = header.getInt(); i > 0; i--) {
+            offsets.add(header.getDouble());
+        }
+        offsetList = Collections.unmodifiableList(offsets);
+
+        int size = header.getInt();
+        int keyLength = header.getInt();
+        int latticeLength = header.getInt();
+        double[] areaTable = new double[header.getInt()];
+        int[] angleTable = new int[areaTable.length];
+        for (int i = 0; i < areaTable.length; i++) {
+            areaTable[i] = header.getDouble();
+            angleTable[i] = header.getInt();
+        }
+        Set<List<Integer>> indexSets = new HashSet<>();
+        for (int i = header.getInt(); i > 0; i--) {
+            List<Integer> indexList = new ArrayList<>();
+            for (int j = header.getInt(); j > 0; j--) {
+                indexList.add(header.getInt());
+            }
+            indexSets.add(indexList);
+        }
+        vertexIndexSet = Collections.unmodifiableSet(indexSets);
+
+        tileStore = new TileStore(size, keyLength, latticeLength, new TileStore.Columns(
+                mapDoubles(header, channel), mapDoubles(header, channel), mapBytes(header, channel),
+                mapInts(header, channel), mapInts(header, channel), mapInts(header, channel), mapInts(header, channel),
+                mapBytes(header, channel), mapBytes(header, channel), mapInts(header, channel)), areaTable, angleTable);
+        tileAreaList = tileStore.createAreaList();
+    }
+
+    /**
+     * Maps the tiling saved in the file, the file may be closed or opened by other processes while the tiling is used.
+     */
+    public static TilingFile map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < 12) {
+                throw new IOException("Not a tiling file: " + file);
+            }
+            ByteBuffer start = channel.map(FileChannel.MapMode.READ_ONLY, 0, 12).order(ByteOrder.LITTLE_ENDIAN);
+            if (start.getInt() != MAGIC) {
+                throw new IOException("Not a tiling file: " + file);
+            }
+            int version = start.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported tiling file version " + version + ": " + file);
+            }
+            int headerLength = start.getInt();
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, headerLength).order(ByteOrder.LITTLE_ENDIAN);
+            header.position(12);
+            return new TilingFile(header, channel);
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Tiling file is truncated: " + file);
+        }
+    }
+
+    /**
+     * Saves the tiling into the file, the file is replaced.
+     */
+    public static void write(Tiling tiling, Path file) throws IOException {
+        TileStore store = tiling.getTileStore();
+        TileStore.Columns columns = store.getColumns();
+        Buffer[] columnArray = {columns.vertexX(), columns.vertexY(), columns.indexOfVertex(), columns.vertexKeys(),
+                columns.tileVertices(), columns.areaClasses(), columns.lattices(), columns.grids(), columns.corners(),
+                columns.tileSlots()};
+
+        int gridRadius = -1;
+        double gridInset = 0;
+        int generations = 0;
+        Rectangle2D window = null;
+        if (tiling instanceof Multigrid multigrid) {
+            gridRadius = multigrid.getGridRadius();
+            gridInset = multigrid.getGridInset();
+            window = multigrid.getWindow();
+        } else if (tiling instanceof CutAndProject cutAndProject) {
+            gridRadius = cutAndProject.getGridRadius();
+            gridInset = cutAndProject.getGridInset();
+            window = cutAndProject.getWindow();
+        } else if (tiling instanceof PenroseSubstitution substitution) {
+            generations = substitution.getGenerations();
+        } else if (tiling instanceof TilingFile tilingFile) {
+            gridRadius = tilingFile.gridRadius;
+            gridInset = tilingFile.gridInset;
+            generations = tilingFile.generations;
+            window = tilingFile.window;
+        }
+        String source = tiling instanceof TilingFile tilingFile ? tilingFile.source : tiling.getClass().getSimpleName();
+        byte[] sourceBytes = source.getBytes(StandardCharsets.UTF_8);
+        double[] areaTable = store.getAreaTable();
+        int[] angleTable = store.getAngleTable();
+        Set<List<Integer>> indexSets = tiling.getVertexIndexSet();
+
+        int headerLength = 12 + 4 + sourceBytes.length + 4 + 1 + 4 + 8 + 4 + 1 + 4 * 8 + 8
+                + 4 + 8 * tiling.getOffsetList().size() + 3 * 4 + 4 + 12 * areaTable.length + 4 + 16 * columnArray.length;
+        for (List<Integer> indexList : indexSets) {
+            headerLength += 4 + 4 * indexList.size();
+        }
+        headerLength = align(headerLength);
+
+        ByteBuffer header = ByteBuffer.allocate(headerLength).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putInt(VERSION).putInt(headerLength);
+        header.putInt(sourceBytes.length).put(sourceBytes);
+        header.putInt(tiling.getSymmetry());
+        header.put((byte) (tiling.isExact() ? 1 : 0));
+        header.putInt(gridRadius);
+        header.putDouble(gridInset);
+        header.putInt(generations);
+        header.put((byte) (window != null ? 1 : 0));
+        Rectangle2D bounds = window != null ? window : new Rectangle2D.Double();
+        header.putDouble(bounds.getX()).putDouble(bounds.getY()).putDouble(bounds.getWidth()).putDouble(bounds.getHeight());
+        header.putDouble(tiling.getTilingRadius());
+        header.putInt(tiling.getOffsetList().size());
+        for (double offset : tiling.getOffsetList()) {
+            header.putDouble(offset);
+        }
+        header.putInt(store.size());
+        header.putInt(store.getKeyLength());
+        header.putInt(store.getLatticeLength());
+        header.putInt(areaTable.length);
+        for (int i = 0; i < areaTable.length; i++) {
+            header.putDouble(areaTable[i]).putInt(angleTable[i]);
+        }
+        header.putInt(indexSets.size());
+        for (List<Integer> indexList : indexSets) {
+            header.putInt(indexList.size());
+            for (int index : indexList) {
+                header.putInt(index);
+            }
+        }
+        long offset = headerLength;
+        for (Buffer column : columnArray) {
+            long length = (long) column.limit() * getElementSize(column);
+            header.putLong(offset).putLong(length);
+            offset = align(offset + length);
+        }
+        header.clear();
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeFully(channel, header);
+            for (Buffer column : columnArray) {
+                writeColumn(channel, column);
+            }
+        }
+    }
+
+    // Writes the column in the blocks of little endian bytes and the padding up to 8 bytes
+    private static void writeColumn(FileChannel channel, Buffer column) throws IOException {
+        ByteBuffer bytes = ByteBuffer.allocate(BLOCK_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        int elementSize = getElementSize(column);
+        for (int from = 0; from < column.limit(); ) {
+            int count = Math.min(column.limit() - from, BLOCK_SIZE / elementSize);
+            bytes.clear();
+            if (column instanceof DoubleBuffer doubles) {
+                bytes.asDoubleBuffer().put(doubles.slice(from, count));
+            } else if (column instanceof IntBuffer ints) {
+                bytes.asIntBuffer().put(ints.slice(from, count));
+            } else {
+                bytes.put(((ByteBuffer) column).slice(from, count));
+            }
+            bytes.position(0).limit(count * elementSize);
+            writeFully(channel, bytes);
+            from += count;
+        }
+        long length = (long) column.limit() * elementSize;
+        writeFully(channel, ByteBuffer.allocate((int) (align(length) - length)));
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer bytes) throws IOException {
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+    }
+
+    private static int getElementSize(Buffer column) {
+        if (column instanceof DoubleBuffer) {
+            return Double.BYTES;
+        }
+        return column instanceof IntBuffer ? Integer.BYTES : Byte.BYTES;
+    }
+
+    private static int align(int length) {
+        return (length + 7) & ~7;
+    }
+
+    private static long align(long length) {
+        return (length + 7) & ~7L;
+    }
+
+    private static ByteBuffer mapBytes(ByteBuffer header, FileChannel channel) throws IOException {
+        long offset = header.getLong();
+        long length = header.getLong();
+        if (offset + length > channel.size()) {
+            throw new IOException("Tiling file is truncated");
+        }
+        return channel.map(FileChannel.MapMode.READ_ONLY, offset, length).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static DoubleBuffer mapDoubles(ByteBuffer header, FileChannel channel) throws IOException {
+        return mapBytes(header, channel).asDoubleBuffer();
+    }
+
+    private static IntBuffer mapInts(ByteBuffer header, FileChannel channel) throws IOException {
+        return mapBytes(header, channel).asIntBuffer();
+    }
+
+    private static String getString(ByteBuffer header) {
+        byte[] bytes = new byte[header.getInt()];
+        header.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // The simple class name of the saved tiling, like Multigrid
+    public String getSource() {
+        return source;
+    }
+
+    @Override
+    public int getSymmetry() {
+        return symmetry;
+    }
+
+    // The grid radius of a multigrid or a cut and project tiling, -1 for the others
+    public int getGridRadius() {
+        return gridRadius;
+    }
+
+    public double getGridInset() {
+        return gridInset;
+    }
+
+    // The generations of a Penrose substitution, 0 for the others
+    public int getGenerations() {
+        return generations;
+    }
+
+    // The window of the tiling or null if it is built by the grid radius
+    public Rectangle2D getWindow() {
+        return window == null ? null : (Rectangle2D) window.clone();
+    }
+
+    @Override
+    public List<Double> getOffsetList() {
+        return offsetList;
+    }
+
+    @Override
+    public TileStore getTileStore() {
+        return tileStore;
+    }
+
+    @Override
+    public List<GridTile> getTileList() {
+        return tileStore.asList();
+    }
+
+    @Override
+    public List<Double> getTileAreaList() {
+        return tileAreaList;
+    }
+
+    @Override
+    public Set<List<Integer>> getVertexIndexSet() {
+        return vertexIndexSet;
+    }
+
+    @Override
+    public double getTilingRadius() {
+        return tilingRadius;
+    }
+
+    @Override
+    public boolean isExact() {
+        return exact;
+    }
+}
@@ -2,6 +2,7 @@ package tilings.painters;
 
 import tilings.multigrid.GridPoint;
 import tilings.multigrid.GridTile;
+import tilings.multigrid.TileStore;
 
 import java.awt.*;
 import java.awt.geom.Path2D;
@@ -32,6 +33,16 @@ public class DrawPenroseArrowsPainter extends PenrosePainter {
         drawArrow(g2, c, d);
     }
 
+    // The arrows are skipped when their triangles are smaller than two pixels
+    @Override
+    public double getDetailScale() {
+        return 10;
+    }
+
+    @Override
+    public void paintFlat(Graphics2D g2, TileStore tileStore, int tile) {
+    }
+
     protected void drawArrow(Graphics2D g2, GridPoint p1, GridPoint p2) {
         fillTriangle(g2, p1, p2, .65);
     }
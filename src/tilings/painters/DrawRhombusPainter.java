@@ -2,16 +2,19 @@ package tilings.painters;
 
 import tilings.multigrid.GridPoint;
 import tilings.multigrid.GridTile;
+import tilings.multigrid.TileStore;
 
 import java.awt.*;
 
 public class DrawRhombusPainter extends RhombusPainter {
     private final Color color;
+    private final Color flatColor;
     private final String name;
 
     public DrawRhombusPainter(Color color, String name) {
         this.color = color;
         this.name = name;
+        flatColor = new Color(color.getRed(), color.getGreen(), color.getBlue(), FLAT_ALPHA);
     }
 
     public DrawRhombusPainter(Color color) {
@@ -24,6 +27,24 @@ public class DrawRhombusPainter extends RhombusPainter {
         g2.draw(getPath(a, b, c, d));
     }
 
+    @Override
+    public void paintRhombus(Graphics2D g2, TileStore tileStore, int tile, int a, int b, int c, int d) {
+        g2.setColor(color);
+        g2.draw(getPath(tileStore, tile, a, b, c, d));
+    }
+
+    // The outlines of the tiles smaller than a few pixels merge, they are filled with the color of their lines
+    @Override
+    public double getDetailScale() {
+        return 3;
+    }
+
+    @Override
+    public void paintFlat(Graphics2D g2, TileStore tileStore, int tile) {
+        g2.setColor(flatColor);
+        g2.fill(getPath(tileStore, tile));
+    }
+
     @Override
     public String getName() {
         return name;
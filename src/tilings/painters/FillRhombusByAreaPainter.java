@@ -2,6 +2,7 @@ package tilings.painters;
 
 import tilings.multigrid.GridPoint;
 import tilings.multigrid.GridTile;
+import tilings.multigrid.TileStore;
 
 import java.awt.*;
 import java.util.ArrayList;
@@ -27,6 +28,13 @@ public class FillRhombusByAreaPainter extends RhombusPainter {
         g2.fill(getPath(a, b, c, d));
     }
 
+    @Override
+    public void paintRhombus(Graphics2D g2, TileStore tileStore, int tile, int a, int b, int c, int d) {
+        int colorIndex = tileAreaList.indexOf(tileStore.getArea(tile));
+        g2.setColor(colorList.get(colorIndex));
+        g2.fill(getPath(tileStore, tile, a, b, c, d));
+    }
+
     @Override
     public String getName() {
         return "Color by area";
@@ -2,9 +2,11 @@ package tilings.painters;
 
 import tilings.multigrid.GridPoint;
 import tilings.multigrid.GridTile;
+import tilings.multigrid.TileStore;
 
 import java.awt.*;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Set;
@@ -13,6 +15,8 @@ public class FillRhombusByIndicesPainter extends RhombusPainter {
 
     private List<Integer> indexSumList = new ArrayList<>();
     private List<Color> colorList;
+    // the color index of every index sum, -1 for the sums which are not in the list
+    private int[] colorIndexTable = new int[0];
 
     public FillRhombusByIndicesPainter(Set<List<Integer>> vertextIndexSet) {
         setVertexIndexSet(vertextIndexSet);
@@ -31,17 +35,31 @@ public class FillRhombusByIndicesPainter extends RhombusPainter {
             throw new AssertionError("Mismatch in the size of the vertextIndexSet and indexSumList");
         }
         colorList = createColorList(indexSumList.size());
+
+        int maxSum = indexSumList.isEmpty() ? 0 : Collections.max(indexSumList);
+        colorIndexTable = new int[maxSum + 1];
+        Arrays.fill(colorIndexTable, -1);
+        for (int i = indexSumList.size() - 1; i >= 0; i--) {
+            colorIndexTable[indexSumList.get(i)] = i;
+        }
     }
 
     @Override
     public void paintRhombus(Graphics2D g2, GridTile rhombus, GridPoint a, GridPoint b, GridPoint c, GridPoint d) {
-        int sum = rhombus.getVertexIndex(a) + rhombus.getVertexIndex(b)
-                + rhombus.getVertexIndex(c) + rhombus.getVertexIndex(d);
-        int colorIndex = indexSumList.indexOf(sum);
+        int sum = rhombus.getIndexSum();
+        int colorIndex = sum < colorIndexTable.length ? colorIndexTable[sum] : -1;
         g2.setColor(colorList.get(colorIndex));
         g2.fill(getPath(a, b, c, d));
     }
 
+    @Override
+    public void paintRhombus(Graphics2D g2, TileStore tileStore, int tile, int a, int b, int c, int d) {
+        int sum = tileStore.getIndexSum(tile);
+        int colorIndex = sum < colorIndexTable.length ? colorIndexTable[sum] : -1;
+        g2.setColor(colorList.get(colorIndex));
+        g2.fill(getPath(tileStore, tile, a, b, c, d));
+    }
+
     @Override
     public String getName() {
         return "Color by indices";
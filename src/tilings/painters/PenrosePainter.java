@@ -2,11 +2,13 @@ package tilings.painters;
 
 import tilings.multigrid.GridPoint;
 import tilings.multigrid.GridTile;
+import tilings.multigrid.TileStore;
 
 import java.awt.*;
 import java.util.List;
 
 abstract public class PenrosePainter extends RhombusPainter {
+    private static final Color FLAT_COLOR = new Color(0, 0, 0, FLAT_ALPHA);
 
     @Override
     public boolean isSymmetrySupported(int symmetry) {
@@ -14,7 +16,7 @@ abstract public class PenrosePainter extends RhombusPainter {
     }
 
     @Override
-    public void paint(Graphics2D g2, GridTile rhombus, boolean isReversed) {
+    protected void paintTile(Graphics2D g2, GridTile rhombus, boolean isReversed) {
         List<GridPoint> vertexList = rhombus.getVertexList();
         boolean useMinVertex = isMinIndexDirection(rhombus);
 
@@ -22,15 +24,18 @@ abstract public class PenrosePainter extends RhombusPainter {
         GridPoint b = vertexList.get(isReversed != useMinVertex ? 1 : 3);
         GridPoint c = vertexList.get(isReversed != useMinVertex ? 0 : 2);
         GridPoint d = vertexList.get(isReversed != useMinVertex ? 3 : 1);
-        Graphics2D temp = (Graphics2D) g2.create();
-        paintRhombus(temp, rhombus, a, b, c, d);
-        temp.dispose();
+        paintRhombus(g2, rhombus, a, b, c, d);
+    }
+
+    // The Penrose painters need the vertex indexes of the tile, they get the GridTile
+    @Override
+    public void paint(Graphics2D g2, TileStore tileStore, int tile, boolean isReversed) {
+        paintTile(g2, tileStore.getTile(tile), isReversed);
     }
 
     protected boolean isMinIndexDirection(GridTile rhombus) {
-        List<GridPoint> vertexList = rhombus.getVertexList();
-        int max = rhombus.getVertexIndex(vertexList.get(0));
-        int min = rhombus.getVertexIndex(vertexList.get(2));
+        int max = rhombus.getVertexIndex(0);
+        int min = rhombus.getVertexIndex(2);
         // 0.2 - 0/3 (0) 2/4 (2) type 1
         // 0.4 - 0/3 (3) 1/4 (1) type 2 (reversed)
         // 0.6 - 0/2 (2) 1/4 (4) type 2
@@ -41,16 +46,33 @@ abstract public class PenrosePainter extends RhombusPainter {
     @Override
     public void paintRhombus(Graphics2D g2, GridTile rhombus, GridPoint a, GridPoint b, GridPoint c, GridPoint d) {
         g2.setColor(Color.BLACK);
-        double area = rhombus.getArea();
-        if (area == 0.587785) {
+        // the angles are in the steps of PI / 5
+        int angle = rhombus.getAngle();
+        if (angle == -1) {
+            // a tile made from its vertex list has no angle, its area is the sine of the angle
+            angle = rhombus.getArea() == 0.587785 ? 1 : rhombus.getArea() == 0.951057 ? 2 : -1;
+        }
+        if (angle == 1) {
             paintThinRhombus(g2, rhombus, a, b, c, d);
-        } else if (area == 0.951057) {
+        } else if (angle == 2) {
             paintThickRhombus(g2, rhombus, a, b, c, d);
         } else {
-            throw new AssertionError("Unexpected tile's area: " + area);
+            throw new AssertionError("Unexpected tile's angle: " + angle);
         }
     }
 
+    // The lines within the tiles smaller than a few pixels merge, the tiles are filled with the color of the lines
+    @Override
+    public double getDetailScale() {
+        return 3;
+    }
+
+    @Override
+    public void paintFlat(Graphics2D g2, TileStore tileStore, int tile) {
+        g2.setColor(FLAT_COLOR);
+        g2.fill(getPath(tileStore, tile));
+    }
+
     abstract void paintThinRhombus(Graphics2D g2, GridTile rhombus, GridPoint a, GridPoint b, GridPoint c, GridPoint d);
 
     abstract void paintThickRhombus(Graphics2D g2, GridTile rhombus, GridPoint a, GridPoint b, GridPoint c, GridPoint d);
@@ -9,6 +9,8 @@ import java.util.ArrayList;
 import java.util.List;
 
 public abstract class RhombusPainter {
+    // the alpha of a flat tile, about the part of a tile the lines of a painter cover
+    protected static final int FLAT_ALPHA = 48;
 
     private boolean enabled = true;
 
@@ -25,14 +27,72 @@ public abstract class RhombusPainter {
     }
 
     public void paint(Graphics2D g2, GridTile rhombus, boolean isReversed) {
+        Graphics2D temp = (Graphics2D) g2.create();
+        paintTile(temp, rhombus, isReversed);
+        temp.dispose();
+    }
+
+    // Paints the rhombus into the graphics itself, the painters set their colors and restore the clip
+    protected void paintTile(Graphics2D g2, GridTile rhombus, boolean isReversed) {
         List<GridPoint> vertexList = rhombus.getVertexList();
         GridPoint a = vertexList.get(isReversed ? 2 : 0);
         GridPoint b = vertexList.get(isReversed ? 1 : 3);
         GridPoint c = vertexList.get(isReversed ? 0 : 2);
         GridPoint d = vertexList.get(isReversed ? 3 : 1);
-        Graphics2D temp = (Graphics2D) g2.create();
-        paintRhombus(temp, rhombus, a, b, c, d);
-        temp.dispose();
+        paintRhombus(g2, rhombus, a, b, c, d);
+    }
+
+    /**
+     * Paints the tile of the store into the graphics without a copy of it, the loops over the tiles
+     * of the renderer and the exporters go this way.
+     */
+    public void paint(Graphics2D g2, TileStore tileStore, int tile, boolean isReversed) {
+        paintRhombus(g2, tileStore, tile, isReversed ? 2 : 0, isReversed ? 1 : 3, isReversed ? 0 : 2, isReversed ? 3 : 1);
+    }
+
+    /**
+     * Paints the tile of the store with the vertices a, b, c and d given by their numbers in the tile.
+     * The painters which need only the coordinates read them from the store, the others get the GridTile.
+     */
+    public void paintRhombus(Graphics2D g2, TileStore tileStore, int tile, int a, int b, int c, int d) {
+        paintRhombus(g2, tileStore.getTile(tile), tileStore.getPoint(tile, a), tileStore.getPoint(tile, b),
+                tileStore.getPoint(tile, c), tileStore.getPoint(tile, d));
+    }
+
+    /**
+     * Paints the tile seen at the scale in pixels per tile side, below the detail scale
+     * the details are too small to be seen and the flat tile is painted instead.
+     */
+    public void paint(Graphics2D g2, TileStore tileStore, int tile, boolean isReversed, double scale) {
+        if (scale < getDetailScale()) {
+            paintFlat(g2, tileStore, tile);
+        } else {
+            paint(g2, tileStore, tile, isReversed);
+        }
+    }
+
+    // The scale below which the tiles are flat, 0 for the painters which always paint the whole tiles
+    public double getDetailScale() {
+        return 0;
+    }
+
+    // Paints the tile without its details, nothing by default
+    public void paintFlat(Graphics2D g2, TileStore tileStore, int tile) {
+    }
+
+    public Path2D getPath(TileStore tileStore, int tile) {
+        return getPath(tileStore, tile, 0, 1, 2, 3);
+    }
+
+    // The path through the vertices of the tile with the numbers a, b, c and d
+    public Path2D getPath(TileStore tileStore, int tile, int a, int b, int c, int d) {
+        Path2D.Double path = new Path2D.Double();
+        path.moveTo(tileStore.getX(tile, a), tileStore.getY(tile, a));
+        path.lineTo(tileStore.getX(tile, b), tileStore.getY(tile, b));
+        path.lineTo(tileStore.getX(tile, c), tileStore.getY(tile, c));
+        path.lineTo(tileStore.getX(tile, d), tileStore.getY(tile, d));
+        path.closePath();
+        return path;
     }
 
     public Path2D getPath(GridPoint a, GridPoint b, GridPoint c, GridPoint d) {
@@ -4,7 +4,6 @@ import tilings.multigrid.GridPoint;
 import tilings.multigrid.GridTile;
 
 import java.awt.*;
-import java.util.List;
 
 public class TwoLayersPainter extends DrawPenroseArrowsPainter {
 
@@ -26,10 +25,15 @@ public class TwoLayersPainter extends DrawPenroseArrowsPainter {
         g2.draw(getPath(a, b, c, d));
     }
 
+    // The layers are the fills of the tiles, they are painted at any scale
+    @Override
+    public double getDetailScale() {
+        return 0;
+    }
+
     protected boolean isBottom(GridTile rhombus) {
-        List<GridPoint> vertexList = rhombus.getVertexList();
-        int max = rhombus.getVertexIndex(vertexList.get(0));
-        int min = rhombus.getVertexIndex(vertexList.get(2));
+        int max = rhombus.getVertexIndex(0);
+        int min = rhombus.getVertexIndex(2);
         return min == 0;
     }
 